@@ -28,6 +28,29 @@ export CTP_HOME=$(cd $(dirname $(readlink -f $0))/..; pwd)
 
 JAVA_CPS=$CTP_HOME/common/lib/cubridqa-common.jar
 
+# use the resolver started by 'ini --serve' instead of a new JVM when there is one
+if [ -n "$CTP_INI_PORT" ] && [ "$1" != "--serve" ]; then
+	if [ -z "$BASH_VERSION" ] && which bash >/dev/null 2>&1; then
+		exec bash "$0" "$@"
+	fi
+
+	# connect in a subshell, since a failed 'exec' redirection ends a POSIX shell.
+	# The subshell exits with the status of the command, or 255 if the resolver is not usable.
+	if [ -n "$BASH_VERSION" ]; then
+		(
+			exec 3<>/dev/tcp/127.0.0.1/$CTP_INI_PORT || exit 255
+			printf '%s\n' "$CTP_INI_TOKEN" "`pwd`" "$#" "$@" >&3
+			read -r status <&3 || exit 255
+			cat <&3
+			exit $status
+		) 2>/dev/null
+		status=$?
+		if [ $status -ne 255 ]; then
+			exit $status
+		fi
+	fi
+fi
+
 if [ "$OSTYPE" == "cygwin" ]
 then
 	"$JAVA_HOME/bin/java" -cp "`cygpath -wp $JAVA_CPS`" com.navercorp.cubridqa.ctp.IniCommand "$@"
@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common.grepo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Properties;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import com.navercorp.cubridqa.common.Constants;
+import com.navercorp.cubridqa.common.grepo.GeneralEntryListener;
+
+/**
+ * Delta segments are packages of the files changed between two commits, and
+ * the paths deleted. One segment is built each time the head of a branch
+ * moves, so that a client some commits behind gets its package composed from
+ * the segments in between, instead of traversing the repository again.
+ */
+public class DeltaSegments {
+
+	private final static String SEGMENT_FLAG = "_SEG_";
+	private final static String META_FILE = "QA_META.INF";
+	private final static String DELETED_FILE = "QA_DELETED.INF";
+	private final static int MAX_CHAIN = 100;
+
+	private static DeltaSegments instance = new DeltaSegments();
+
+	private File dataRoot;
+	private HashMap<String, String> lastHeads = new HashMap<String, String>();
+
+	public static DeltaSegments getInstance() {
+		return instance;
+	}
+
+	private DeltaSegments() {
+		Properties props = Constants.COMMON_DAILYQA_CONF;
+		this.dataRoot = new File(props.getProperty("grepo_srv_data_root", ""));
+	}
+
+	/**
+	 * return the package from clientSHA1 to the head of the branch, or null
+	 * if it can not be composed, then the caller builds it as before.
+	 */
+	public String compose(String gitRoot, String repo, String remote, String branch, String subPath, String clientSHA1) {
+		try {
+			return __compose(gitRoot, repo, remote, branch, subPath, clientSHA1);
+		} catch (Exception e) {
+			System.out.println("[SEGMENT] fail to compose " + repo + " " + branch + " " + subPath + " from " + clientSHA1 + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private String __compose(String gitRoot, String repo, String remote, String branch, String subPath, String clientSHA1) throws Exception {
+		String head = RepoUtil.getTheLatestRevCommit(gitRoot, remote, branch).name();
+		if (head.equals(clientSHA1)) {
+			return null;
+		}
+
+		String packageName = RepoServiceImpl.getPackageName(repo, branch, subPath, clientSHA1, head);
+		PackageCache cache = PackageCache.getInstance();
+		File packageFile = cache.get(packageName);
+		if (packageFile != null) {
+			return packageFile.getAbsolutePath();
+		}
+		if (EmptyCache.getInstance().has(packageName)) {
+			return null;
+		}
+
+		// link the previous head to the new one, which older clients go through
+		String key = repo + "|" + remote + "|" + branch + "|" + subPath;
+		String prevHead;
+		synchronized (lastHeads) {
+			prevHead = lastHeads.put(key, head);
+		}
+		if (prevHead != null && prevHead.equals(head) == false) {
+			buildSegment(gitRoot, repo, branch, subPath, prevHead, head);
+		}
+
+		String segmentPrefix = getSegmentPrefix(repo, branch, subPath);
+		ArrayList<File> chain = findChain(segmentPrefix, clientSHA1.substring(0, 10), head.substring(0, 10));
+		if (chain == null) {
+			buildSegment(gitRoot, repo, branch, subPath, clientSHA1, head);
+			chain = findChain(segmentPrefix, clientSHA1.substring(0, 10), head.substring(0, 10));
+			if (chain == null) {
+				return null;
+			}
+		}
+
+		if (cache.beginBuild(packageName) == false) {
+			packageFile = cache.get(packageName);
+			return packageFile == null ? null : packageFile.getAbsolutePath();
+		}
+		packageFile = new File(dataRoot, packageName);
+		File result = null;
+		try {
+			result = composePackage(chain, packageFile, head);
+		} finally {
+			cache.endBuild(packageName, result);
+		}
+
+		if (result == null) {
+			EmptyCache.getInstance().cache(packageName);
+			return null;
+		}
+		java.util.Date d = new java.util.Date();
+		PackageInf.getInstance().println(packageName, d.toString() + "|" + d.getTime(), clientSHA1, head, "SEGMENTS=" + chain.size());
+		return result.getAbsolutePath();
+	}
+
+	private static String getSegmentPrefix(String repo, String branch, String subPath) {
+		String name = RepoServiceImpl.getPackageName(repo, branch, subPath, null, "0000000000");
+		// cut '_BEGIN_0000000000.zip'
+		return name.substring(0, name.length() - "BEGIN_0000000000.zip".length() - 1) + SEGMENT_FLAG;
+	}
+
+	/**
+	 * the shortest chain of segments from one commit to another.
+	 */
+	private ArrayList<File> findChain(final String segmentPrefix, String from, String to) {
+		File[] files = dataRoot.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith(segmentPrefix) && name.endsWith(".zip");
+			}
+		});
+		if (files == null) {
+			return null;
+		}
+
+		HashMap<String, ArrayList<File>> edges = new HashMap<String, ArrayList<File>>();
+		for (File f : files) {
+			String[] arr = f.getName().substring(segmentPrefix.length(), f.getName().length() - ".zip".length()).split("_");
+			if (arr.length != 2) {
+				continue;
+			}
+			ArrayList<File> list = edges.get(arr[0]);
+			if (list == null) {
+				list = new ArrayList<File>();
+				edges.put(arr[0], list);
+			}
+			list.add(f);
+		}
+
+		HashMap<String, File> reachedBy = new HashMap<String, File>();
+		HashMap<String, String> prevNode = new HashMap<String, String>();
+		HashSet<String> visited = new HashSet<String>();
+		LinkedList<String> queue = new LinkedList<String>();
+		queue.add(from);
+		visited.add(from);
+		while (queue.isEmpty() == false && visited.contains(to) == false) {
+			String node = queue.removeFirst();
+			ArrayList<File> list = edges.get(node);
+			if (list == null) {
+				continue;
+			}
+			for (File f : list) {
+				String next = f.getName().substring(f.getName().lastIndexOf('_') + 1, f.getName().length() - ".zip".length());
+				if (visited.add(next)) {
+					reachedBy.put(next, f);
+					prevNode.put(next, node);
+					queue.add(next);
+				}
+			}
+		}
+		if (visited.contains(to) == false) {
+			return null;
+		}
+
+		LinkedList<File> chain = new LinkedList<File>();
+		for (String node = to; node.equals(from) == false; node = prevNode.get(node)) {
+			chain.addFirst(reachedBy.get(node));
+		}
+		if (chain.size() > MAX_CHAIN) {
+			return null;
+		}
+		for (File f : chain) {
+			// mark them used, so they are kept longer
+			PackageCache.getInstance().get(f.getName());
+		}
+		return new ArrayList<File>(chain);
+	}
+
+	private void buildSegment(String gitRoot, String repo, String branch, String subPath, String fromSHA1, String toSHA1) throws Exception {
+		String name = getSegmentPrefix(repo, branch, subPath) + fromSHA1.substring(0, 10) + "_" + toSHA1.substring(0, 10) + ".zip";
+		PackageCache cache = PackageCache.getInstance();
+		if (cache.beginBuild(name) == false) {
+			return;
+		}
+
+		File segment = new File(dataRoot, name);
+		File tmpFile = new File(segment.getAbsolutePath() + ".tmp." + System.currentTimeMillis());
+		File result = null;
+		try {
+			segment.getParentFile().mkdirs();
+			final String trimPath = subPath;
+			final JarOutputStream jout = new JarOutputStream(new FileOutputStream(tmpFile));
+			ArrayList<String> deletedPaths = new ArrayList<String>();
+			try {
+				RepoUtil.traverseRepo(gitRoot, fromSHA1, toSHA1, subPath, new GeneralEntryListener() {
+					@Override
+					public void feed(String file, boolean isDirectory, InputStream is) {
+						try {
+							RepoUtil.saveZip(is, file, jout, trimPath);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				}, deletedPaths);
+
+				StringBuffer deleted = new StringBuffer();
+				for (String p : deletedPaths) {
+					deleted.append(RepoUtil.convertPath(p, subPath)).append('\n');
+				}
+				RepoUtil.saveZip(deleted.toString(), DELETED_FILE, jout, null);
+			} finally {
+				jout.close();
+			}
+
+			if (tmpFile.renameTo(segment)) {
+				result = segment;
+				System.out.println("[SEGMENT] " + name + " BUILT");
+			}
+		} finally {
+			if (tmpFile.exists()) {
+				tmpFile.delete();
+			}
+			cache.endBuild(name, result);
+		}
+	}
+
+	/**
+	 * merge the segments from the newest one, so the newest content of a file
+	 * wins and a file deleted later is not taken from older segments.
+	 */
+	private File composePackage(ArrayList<File> chain, File packageFile, String head) throws Exception {
+		File tmpFile = new File(packageFile.getAbsolutePath() + ".tmp." + System.currentTimeMillis());
+		HashSet<String> done = new HashSet<String>();
+		int count = 0;
+		try {
+			JarOutputStream jout = new JarOutputStream(new FileOutputStream(tmpFile));
+			try {
+				for (int i = chain.size() - 1; i >= 0; i--) {
+					ArrayList<String> deletedPaths = new ArrayList<String>();
+					JarInputStream jin = new JarInputStream(new FileInputStream(chain.get(i)));
+					try {
+						ZipEntry entry;
+						while ((entry = jin.getNextEntry()) != null) {
+							if (entry.getName().equals(DELETED_FILE)) {
+								for (String p : readContent(jin).split("\n")) {
+									if (p.length() > 0) {
+										deletedPaths.add(p);
+									}
+								}
+							} else if (entry.getName().equals(META_FILE) == false && done.add(entry.getName())) {
+								RepoUtil.saveZip(jin, entry.getName(), jout, null);
+								count++;
+							}
+						}
+					} finally {
+						jin.close();
+					}
+					done.addAll(deletedPaths);
+				}
+				if (count > 0) {
+					RepoUtil.saveZip("sha1=" + head, META_FILE, jout, null);
+				}
+			} finally {
+				jout.close();
+			}
+
+			if (count == 0) {
+				return null;
+			}
+			if (packageFile.exists() == false && tmpFile.renameTo(packageFile) == false) {
+				return null;
+			}
+			return packageFile;
+		} finally {
+			if (tmpFile.exists()) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	private static String readContent(InputStream in) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int len;
+		while ((len = in.read(buffer)) != -1) {
+			out.write(buffer, 0, len);
+		}
+		return out.toString();
+	}
+}
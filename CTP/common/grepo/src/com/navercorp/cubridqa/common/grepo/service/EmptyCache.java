@@ -25,34 +25,34 @@
  */
 package com.navercorp.cubridqa.common.grepo.service;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class EmptyCache {
 
+	private final static int MAX_SIZE = 1000;
+
 	private final static EmptyCache instance = new EmptyCache();
 
-	private ArrayList<String> list = new ArrayList<String>();
+	private LinkedHashMap<String, Boolean> map = new LinkedHashMap<String, Boolean>(MAX_SIZE * 2, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
 
 	public static EmptyCache getInstance() {
 		return instance;
 	}
 
-	public void cache(String item) {
+	public synchronized void cache(String item) {
 		System.out.println("[EMPTY CACHE] " + item + "  ADD");
-		list.add(item);
-		int len = list.size() - 1000;
-		if (len > 0) {
-			for (int i = 0; i < len; i++) {
-				try {
-					list.remove(0);
-				} catch (Exception e) {
-				}
-			}
-		}
+		map.put(item, Boolean.TRUE);
 	}
 
-	public boolean has(String item) {
-		boolean r = list.contains(item);
+	public synchronized boolean has(String item) {
+		boolean r = map.get(item) != null;
 		System.out.println("[EMPTY CACHE] " + item + "  " + (r ? "FOUND" : "NOT FOUND"));
 		return r;
 	}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common.grepo.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream packages over a plain socket, so that large packages are sent by
+ * FileChannel.transferTo instead of RMI chunks. The request is one line
+ * 'GET <file> <start>'. The response is 'OK <length>' and the bytes from
+ * start, or 'ERR <message>'. A client resumes a broken download by asking
+ * again from the offset it got. When all stream threads are busy the request
+ * is answered by 'ERR', and the client uses RMI instead.
+ */
+public class FileStreamServer extends Thread {
+
+	public final static String CMD_GET = "GET";
+	public final static String RESP_OK = "OK";
+	public final static String RESP_ERR = "ERR";
+
+	private final static int MAX_STREAMS = 32;
+	private final static int READ_TIMEOUT = 30 * 1000;
+
+	private ServerSocketChannel server;
+	private File dataRoot;
+	private ExecutorService pool;
+
+	public FileStreamServer(int port, String dataRoot) throws IOException {
+		super("grepo-stream-server");
+		setDaemon(true);
+		this.server = ServerSocketChannel.open();
+		this.server.socket().bind(new InetSocketAddress(port));
+		this.dataRoot = new File(dataRoot).getCanonicalFile();
+		this.pool = new ThreadPoolExecutor(0, MAX_STREAMS, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "grepo-stream");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				final Socket socket = server.accept().socket();
+				try {
+					// a client which never sends the request can not hold a thread
+					socket.setSoTimeout(READ_TIMEOUT);
+				} catch (IOException e) {
+					socket.close();
+					continue;
+				}
+				try {
+					pool.execute(new Runnable() {
+						public void run() {
+							try {
+								serve(socket);
+							} catch (Exception e) {
+								System.out.println("[STREAM] fail to serve " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+							} finally {
+								try {
+									socket.close();
+								} catch (IOException e) {
+								}
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					refuse(socket, "busy");
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void serve(Socket socket) throws IOException {
+		socket.setTcpNoDelay(true);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+		OutputStream out = socket.getOutputStream();
+		String request = reader.readLine();
+		if (request == null) {
+			return;
+		}
+
+		String[] arr = request.split(" ");
+		File file;
+		long start;
+		try {
+			if (arr.length < 3 || !arr[0].equals(CMD_GET)) {
+				throw new IOException("bad request");
+			}
+			// the filename may have blanks
+			start = Long.parseLong(arr[arr.length - 1]);
+			file = getPackageFile(request.substring(CMD_GET.length() + 1, request.lastIndexOf(' ')));
+		} catch (Exception e) {
+			out.write((RESP_ERR + " " + e.getMessage() + "\n").getBytes("UTF-8"));
+			out.flush();
+			return;
+		}
+
+		if (start == 0) {
+			System.out.println("STREAM " + file + "(" + new java.util.Date() + ", " + socket.getInetAddress().getHostAddress() + ")");
+		}
+		PackageCache.getInstance().get(file.getName());
+
+		RandomAccessFile rf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = rf.getChannel();
+			long length = channel.size();
+			start = Math.max(0, Math.min(start, length));
+			out.write((RESP_OK + " " + length + "\n").getBytes("UTF-8"));
+			out.flush();
+
+			// socket channel lets the kernel send the file directly
+			SocketChannel target = socket.getChannel();
+			long pos = start;
+			while (pos < length) {
+				pos += channel.transferTo(pos, length - pos, target);
+			}
+			out.flush();
+		} finally {
+			rf.close();
+		}
+	}
+
+	private void refuse(Socket socket, String message) {
+		try {
+			socket.getOutputStream().write((RESP_ERR + " " + message + "\n").getBytes("UTF-8"));
+		} catch (IOException e) {
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private File getPackageFile(String fileName) throws IOException {
+		File file = new File(fileName).getCanonicalFile();
+		if (!file.getPath().startsWith(dataRoot.getPath() + File.separator) || !file.isFile()) {
+			throw new IOException("Deny");
+		}
+		return file;
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common.grepo.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.navercorp.cubridqa.common.Constants;
+
+/**
+ * Index of the packages in grepo_srv_data_root. Packages are kept in the
+ * order of their last use and the least recently used ones are deleted when
+ * the total size is over grepo_srv_data_max_size_mb. A package is built by
+ * one request only, and the others asking for it wait for the result.
+ */
+public class PackageCache {
+
+	private final static long MB = 1024 * 1024;
+
+	/* a package used recently may be still downloading, so it is kept */
+	private final static long EVICT_GRACE_MILLIS = 10 * 60 * 1000;
+
+	private static PackageCache instance = new PackageCache();
+
+	private File dataRoot;
+	private long maxBytes;
+	private long totalBytes = 0;
+
+	private LinkedHashMap<String, Entry> index = new LinkedHashMap<String, Entry>(1024, 0.75f, true);
+	private HashSet<String> building = new HashSet<String>();
+
+	public static PackageCache getInstance() {
+		return instance;
+	}
+
+	private PackageCache() {
+		Properties props = Constants.COMMON_DAILYQA_CONF;
+		this.dataRoot = new File(props.getProperty("grepo_srv_data_root", ""));
+		this.maxBytes = Long.parseLong(props.getProperty("grepo_srv_data_max_size_mb", "20480").trim()) * MB;
+		load();
+		System.out.println("[PACKAGE CACHE] " + index.size() + " packages, " + (totalBytes / MB) + " MB, limit " + (maxBytes / MB) + " MB");
+	}
+
+	private void load() {
+		File[] files = dataRoot.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				long d = f1.lastModified() - f2.lastModified();
+				return d < 0 ? -1 : (d > 0 ? 1 : 0);
+			}
+		});
+		for (File f : files) {
+			if (f.getName().indexOf(".zip.tmp.") != -1) {
+				// left by a build which did not finish
+				f.delete();
+			} else if (f.isFile() && f.getName().endsWith(".zip")) {
+				put(f);
+			}
+		}
+	}
+
+	/**
+	 * get the package and mark it used. Return null if it is not cached.
+	 */
+	public synchronized File get(String name) {
+		Entry entry = index.get(name);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.file.exists()) {
+			remove(name);
+			return null;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		return entry.file;
+	}
+
+	/**
+	 * wait if the package is being built by another request. Return true if
+	 * the caller should build it, then endBuild must be called.
+	 */
+	public synchronized boolean beginBuild(String name) throws InterruptedException {
+		while (building.contains(name)) {
+			wait();
+		}
+		if (get(name) != null) {
+			return false;
+		}
+		building.add(name);
+		return true;
+	}
+
+	/**
+	 * finish the build. The package is added if the file is given.
+	 */
+	public synchronized void endBuild(String name, File file) {
+		if (building.remove(name)) {
+			if (file != null && file.exists()) {
+				put(file);
+				evict();
+			}
+			notifyAll();
+		}
+	}
+
+	private void put(File file) {
+		remove(file.getName());
+		Entry entry = new Entry(file);
+		index.put(file.getName(), entry);
+		totalBytes += entry.size;
+	}
+
+	private void remove(String name) {
+		Entry entry = index.remove(name);
+		if (entry != null) {
+			totalBytes -= entry.size;
+		}
+	}
+
+	private void evict() {
+		long now = System.currentTimeMillis();
+		ArrayList<Entry> victims = new ArrayList<Entry>();
+		long bytes = totalBytes;
+		Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Entry entry = it.next().getValue();
+			if (now - entry.lastUsed < EVICT_GRACE_MILLIS) {
+				continue;
+			}
+			victims.add(entry);
+			bytes -= entry.size;
+		}
+		for (Entry entry : victims) {
+			remove(entry.file.getName());
+			entry.file.delete();
+			System.out.println("[PACKAGE CACHE] " + entry.file.getName() + "  EVICTED (" + entry.size + " bytes)");
+		}
+	}
+
+	private static class Entry {
+		File file;
+		long size;
+		long lastUsed;
+
+		Entry(File file) {
+			this.file = file;
+			this.size = file.length();
+			this.lastUsed = file.lastModified();
+		}
+	}
+}
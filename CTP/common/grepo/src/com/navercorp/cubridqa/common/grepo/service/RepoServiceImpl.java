@@ -28,6 +28,7 @@ package com.navercorp.cubridqa.common.grepo.service;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.rmi.RemoteException;
@@ -52,6 +53,7 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 	Properties props;
 	String dataRoot;
 	String repoRoot;
+	FileStreamServer streamServer;
 
 	protected RepoServiceImpl(Properties props) throws RemoteException {
 		super();
@@ -67,6 +69,24 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 		System.out.println("git_user: " + gitUser);
 		System.out.println("git_pwd: (" + gitPwd.length() + ")");
 
+		PackageCache.getInstance();
+
+		// 0 means one port after grepo_srv_port, -1 disables streaming
+		int streamPort = Integer.parseInt(props.getProperty("grepo_srv_stream_port", "0").trim());
+		if (streamPort == 0) {
+			streamPort = Integer.parseInt(props.getProperty("grepo_srv_port", "1099").trim()) + 1;
+		}
+		if (streamPort > 0) {
+			try {
+				this.streamServer = new FileStreamServer(streamPort, this.dataRoot);
+				this.streamServer.start();
+			} catch (IOException e) {
+				System.out.println("fail to start stream server on " + streamPort + ": " + e.getMessage());
+				this.streamServer = null;
+			}
+		}
+		System.out.println("grepo_srv_stream_port: " + (this.streamServer == null ? "disabled" : String.valueOf(this.streamServer.getPort())));
+
 		boolean enableFetchThread = CommonUtils.convertBoolean(props.getProperty("grepo_srv_enable_fetch_thread"), false);
 		System.out.println("grepo_srv_enable_fetch_thread: " + enableFetchThread);
 		if (enableFetchThread) {
@@ -78,6 +98,10 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 		return "HELLO";
 	}
 
+	public int getStreamPort() throws Exception {
+		return streamServer == null ? -1 : streamServer.getPort();
+	}
+
 	public String fetch(String repo, String branch, String subPath, String clientSHA1) throws Exception {
 		return fetch(repo, "local", branch, subPath, clientSHA1);
 	}
@@ -93,13 +117,27 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 			}
 		}
 
+		if (clientSHA1 != null && clientSHA1.trim().equals("") == false) {
+			// compose from the delta segments built for earlier clients
+			String composed = DeltaSegments.getInstance().compose(repoRoot + File.separator + repo, repo, remote, branch, subPath, clientSHA1);
+			if (composed != null) {
+				return composed;
+			}
+		}
+
 		FetchEntryListener listener = null;
-		if (clientSHA1 == null || clientSHA1.trim().equals("")) {
-			listener = new FetchEntryListener(repo, branch, subPath, null);
-			RepoUtil.traverseRepo(repoRoot + File.separator + repo, remote, branch, subPath, listener);
-		} else {
-			listener = new FetchEntryListener(repo, branch, subPath, clientSHA1);
-			RepoUtil.traverseRepo(repoRoot + File.separator + repo, remote, branch, subPath, clientSHA1, listener);
+		try {
+			if (clientSHA1 == null || clientSHA1.trim().equals("")) {
+				listener = new FetchEntryListener(repo, branch, subPath, null);
+				RepoUtil.traverseRepo(repoRoot + File.separator + repo, remote, branch, subPath, listener);
+			} else {
+				listener = new FetchEntryListener(repo, branch, subPath, clientSHA1);
+				RepoUtil.traverseRepo(repoRoot + File.separator + repo, remote, branch, subPath, clientSHA1, listener);
+			}
+		} finally {
+			if (listener != null) {
+				listener.abortBuild();
+			}
 		}
 		if (listener.getZipFile() == null) {
 			return null;
@@ -109,6 +147,14 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 
 	}
 
+	static String getPackageName(String repo, String branch, String subPath, String fromSHA1, String toSHA1) {
+		String branchName = branch.replace('/', '_');
+		String subPathName = (subPath == null || subPath.equals("")) ? "ALL" : subPath.replace('/', '_');
+		String fromSHA1Name = fromSHA1 == null ? "BEGIN" : fromSHA1.substring(0, 10);
+		String toSHA1Name = toSHA1.substring(0, 10);
+		return repo + "_" + branchName + "_" + subPathName + "_" + fromSHA1Name + "_" + toSHA1Name + ".zip";
+	}
+
 	@Override
 	public byte[] readFile(String fileName, long start) throws Exception {
 
@@ -120,6 +166,8 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 		if (start == 0) {
 			System.out.println("DOWN " + fileName + "(" + new java.util.Date() + ")");
 		}
+		// keep it from eviction while it is downloaded
+		PackageCache.getInstance().get(new File(fileName).getName());
 
 		RandomAccessFile rf = null;
 		ByteArrayOutputStream out = null;
@@ -174,6 +222,7 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 		File zipFile, tmpFile;
 		String theLastestSHA1;
 		boolean enterFeed = false;
+		boolean building = false;
 
 		JarOutputStream jout;
 
@@ -193,17 +242,29 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 				return false;
 			}
 
-			String branchName = branch.replace('/', '_');
-			String subPathName = (subPath == null || subPath.equals("")) ? "ALL" : subPath.replace('/', '_');
-			String fromSHA1Name = this.clientSHA1 == null ? "BEGIN" : clientSHA1.substring(0, 10);
-			String toSHA1Name = theLastestSHA1.substring(0, 10);
+			this.zipFile = new File(dataRoot + File.separator + getPackageName(repo, branch, subPath, clientSHA1, theLastestSHA1));
+			PackageCache cache = PackageCache.getInstance();
+			if (cache.get(zipFile.getName()) != null) {
+				return false;
+			}
 
-			this.zipFile = new File(dataRoot + File.separator + repo + "_" + branchName + "_" + subPathName + "_" + fromSHA1Name + "_" + toSHA1Name + ".zip");
-			if (zipFile.exists()) {
+			if (EmptyCache.getInstance().has(this.zipFile.getName())) {
+				this.zipFile = null;
+				return false;
+			}
+
+			// the same package may be in building for another client
+			if (cache.beginBuild(zipFile.getName()) == false) {
 				return false;
 			}
+			this.building = true;
 
+			if (zipFile.exists()) {
+				endBuild(zipFile);
+				return false;
+			}
 			if (EmptyCache.getInstance().has(this.zipFile.getName())) {
+				endBuild(null);
 				this.zipFile = null;
 				return false;
 			}
@@ -239,6 +300,7 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 				}
 
 				EmptyCache.getInstance().cache(this.zipFile.getName());
+				endBuild(null);
 				zipFile = null;
 				if (tmpFile != null && tmpFile.exists()) {
 					tmpFile.delete();
@@ -265,6 +327,33 @@ public class RepoServiceImpl extends UnicastRemoteObject implements RepoService
 						tmpFile.delete();
 					}
 				}
+				endBuild(zipFile);
+			}
+		}
+
+		private void endBuild(File file) {
+			if (building) {
+				building = false;
+				PackageCache.getInstance().endBuild(zipFile.getName(), file);
+			}
+		}
+
+		/**
+		 * release the build when the traverse stops before afterFeed.
+		 */
+		private void abortBuild() {
+			if (building) {
+				try {
+					if (jout != null)
+						jout.close();
+				} catch (Exception e) {
+					// e.printStackTrace();
+				}
+				if (tmpFile != null && tmpFile.exists()) {
+					tmpFile.delete();
+				}
+				endBuild(null);
+				zipFile = null;
 			}
 		}
 	}
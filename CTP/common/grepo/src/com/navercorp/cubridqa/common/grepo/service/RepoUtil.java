@@ -106,10 +106,37 @@ public class RepoUtil {
 				return;
 			}
 		}
+		diffTrees(git, sinceSHA1, theLatestCommit.getTree().getId(), filePath, listener, null);
+		if (listener != null) {
+			listener.afterFeed(null);
+		}
+	}
+
+	/**
+	 * feed the files changed from sinceSHA1 to toSHA1, and collect the
+	 * deleted paths if deletedPaths is given.
+	 */
+	public static void traverseRepo(String gitRoot, String sinceSHA1, String toSHA1, String filePath, EntryListener listener, List<String> deletedPaths) throws Exception {
+		Git git = getGit(gitRoot);
+		Repository repository = git.getRepository();
+
+		if (listener != null) {
+			if (listener.beforeFeed(toSHA1) == false) {
+				return;
+			}
+		}
+		diffTrees(git, sinceSHA1, repository.resolve(toSHA1 + "^{tree}"), filePath, listener, deletedPaths);
+		if (listener != null) {
+			listener.afterFeed(null);
+		}
+	}
+
+	private static void diffTrees(Git git, String sinceSHA1, ObjectId newTreeId, String filePath, EntryListener listener, List<String> deletedPaths) throws Exception {
+		Repository repository = git.getRepository();
 		ObjectReader reader = repository.newObjectReader();
 
 		CanonicalTreeParser newTree = new CanonicalTreeParser();
-		newTree.reset(reader, theLatestCommit.getTree().getId());
+		newTree.reset(reader, newTreeId);
 
 		ObjectId oldObj = repository.resolve(sinceSHA1 + "^{tree}");
 		CanonicalTreeParser oldTree = new CanonicalTreeParser();
@@ -124,8 +151,14 @@ public class RepoUtil {
 		List<DiffEntry> list = diff.call();
 		for (DiffEntry f : list) {
 			if (f.getChangeType() == ChangeType.DELETE) {
+				if (deletedPaths != null) {
+					deletedPaths.add(f.getOldPath());
+				}
 				continue;
 			}
+			if (f.getChangeType() == ChangeType.RENAME && deletedPaths != null) {
+				deletedPaths.add(f.getOldPath());
+			}
 			objectId = f.getNewId().toObjectId();
 
 			if (listener != null) {
@@ -133,9 +166,7 @@ public class RepoUtil {
 				listener.feed(f.getNewPath(), false, loader.openStream());
 			}
 		}
-		if (listener != null) {
-			listener.afterFeed(null);
-		}
+		reader.close();
 	}
 
 	public static RevCommit getTheLatestRevCommit(String gitRoot, String remoteName, String branchName) throws IOException {
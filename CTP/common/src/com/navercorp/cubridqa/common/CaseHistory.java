@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elapse time history of test cases. Every finished case is appended to the
+ * history file of its suite under $CTP_HOME/result/history as one line of
+ * case, build, elapse time (ms) and finish time separated by tab. Only the
+ * last records of each case are kept in memory, and the file is compacted to
+ * them when it grows too large.
+ */
+public class CaseHistory {
+
+	public final static int MAX_RECORDS_PER_CASE = 20;
+
+	private final static int COMPACT_MIN_LINES = 10000;
+
+	private static Map<String, CaseHistory> instanceMap = new HashMap<String, CaseHistory>();
+
+	private String historyFile;
+
+	private Map<String, LinkedList<Record>> recordMap = new HashMap<String, LinkedList<Record>>();
+
+	private int lineCount = 0;
+
+	private BufferedWriter writer;
+
+	/**
+	 * get the history of one test suite (shell, isolation, ha_repl, sql, ...)
+	 * 
+	 * @param suite
+	 * @return
+	 */
+	public static synchronized CaseHistory getInstance(String suite) {
+		CaseHistory history = instanceMap.get(suite);
+		if (history == null) {
+			String dir = (Constants.ENV_CTP_HOME == null ? "." : Constants.ENV_CTP_HOME) + File.separator + "result" + File.separator + "history";
+			history = new CaseHistory(dir + File.separator + suite + ".log");
+			instanceMap.put(suite, history);
+		}
+		return history;
+	}
+
+	public CaseHistory(String historyFile) {
+		this.historyFile = historyFile;
+		load();
+		if (lineCount > COMPACT_MIN_LINES && lineCount > getRecordCount() * 2) {
+			try {
+				compact();
+			} catch (IOException e) {
+				System.out.println("[WARN] fail to compact " + historyFile + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void load() {
+		File file = new File(historyFile);
+		if (!file.exists()) {
+			return;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineCount++;
+				String[] items = line.split("\t");
+				if (items.length < 4) {
+					continue;
+				}
+				try {
+					addRecord(items[0], new Record(items[1], Long.parseLong(items[2]), Long.parseLong(items[3])));
+				} catch (NumberFormatException e) {
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("[WARN] fail to load " + historyFile + ": " + e.getMessage());
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private void addRecord(String testCase, Record record) {
+		LinkedList<Record> list = recordMap.get(testCase);
+		if (list == null) {
+			list = new LinkedList<Record>();
+			recordMap.put(testCase, list);
+		}
+		list.add(record);
+		if (list.size() > MAX_RECORDS_PER_CASE) {
+			list.removeFirst();
+		}
+	}
+
+	private int getRecordCount() {
+		int count = 0;
+		for (List<Record> list : recordMap.values()) {
+			count += list.size();
+		}
+		return count;
+	}
+
+	/**
+	 * add the elapse time of a finished test case.
+	 * 
+	 * @param testCase
+	 * @param build
+	 * @param elapseTime
+	 *            in milliseconds.
+	 */
+	public synchronized void add(String testCase, String build, long elapseTime) {
+		if (testCase == null || elapseTime < 0) {
+			return;
+		}
+		Record record = new Record(build == null ? "" : build, elapseTime, System.currentTimeMillis());
+		addRecord(testCase, record);
+		try {
+			if (writer == null) {
+				File file = new File(historyFile);
+				if (file.getParentFile() != null && !file.getParentFile().exists()) {
+					file.getParentFile().mkdirs();
+				}
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+			}
+			writer.write(testCase + "\t" + record.build + "\t" + record.elapseTime + "\t" + record.time);
+			writer.newLine();
+			writer.flush();
+			lineCount++;
+		} catch (IOException e) {
+			System.out.println("[WARN] fail to write " + historyFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * rewrite the history file with the records kept in memory.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void compact() throws IOException {
+		close();
+		File file = new File(historyFile);
+		File tmpFile = new File(historyFile + ".tmp");
+		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8"));
+		int count = 0;
+		try {
+			Iterator<Map.Entry<String, LinkedList<Record>>> it = recordMap.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, LinkedList<Record>> entry = it.next();
+				for (Record record : entry.getValue()) {
+					out.write(entry.getKey() + "\t" + record.build + "\t" + record.elapseTime + "\t" + record.time);
+					out.newLine();
+					count++;
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("fail to delete " + historyFile);
+		}
+		if (!tmpFile.renameTo(file)) {
+			throw new IOException("fail to rename " + tmpFile);
+		}
+		lineCount = count;
+	}
+
+	/**
+	 * get the last elapse time of the test case.
+	 * 
+	 * @param testCase
+	 * @return -1 if not found.
+	 */
+	public synchronized long getLast(String testCase) {
+		LinkedList<Record> list = recordMap.get(testCase);
+		return list == null || list.isEmpty() ? -1 : list.getLast().elapseTime;
+	}
+
+	/**
+	 * get the last elapse time of the test case with the build.
+	 * 
+	 * @param testCase
+	 * @param build
+	 * @return -1 if not found.
+	 */
+	public synchronized long getLast(String testCase, String build) {
+		LinkedList<Record> list = recordMap.get(testCase);
+		if (list == null) {
+			return -1;
+		}
+		Iterator<Record> it = list.descendingIterator();
+		while (it.hasNext()) {
+			Record record = it.next();
+			if (record.build.equals(build)) {
+				return record.elapseTime;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * get the elapse time at the percentile of the test case.
+	 * 
+	 * @param testCase
+	 * @param percentile
+	 *            0 - 100, 50 for median.
+	 * @return -1 if not found.
+	 */
+	public synchronized long getPercentile(String testCase, int percentile) {
+		LinkedList<Record> list = recordMap.get(testCase);
+		if (list == null || list.isEmpty()) {
+			return -1;
+		}
+		long[] times = new long[list.size()];
+		int i = 0;
+		for (Record record : list) {
+			times[i++] = record.elapseTime;
+		}
+		Arrays.sort(times);
+		int index = (int) Math.ceil(percentile / 100.0 * times.length) - 1;
+		return times[Math.max(0, Math.min(times.length - 1, index))];
+	}
+
+	public long getMedian(String testCase) {
+		return getPercentile(testCase, 50);
+	}
+
+	public long getP95(String testCase) {
+		return getPercentile(testCase, 95);
+	}
+
+	/**
+	 * get the median elapse time of the test cases which have history.
+	 * 
+	 * @param caseList
+	 * @return
+	 */
+	public Map<String, Long> getMedians(List<String> caseList) {
+		HashMap<String, Long> map = new HashMap<String, Long>();
+		for (String testCase : caseList) {
+			long t = getMedian(testCase);
+			if (t >= 0) {
+				map.put(testCase, t);
+			}
+		}
+		return map;
+	}
+
+	public synchronized void close() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+			}
+			writer = null;
+		}
+	}
+
+	public String getHistoryFile() {
+		return historyFile;
+	}
+
+	private static class Record {
+		String build;
+		long elapseTime;
+		long time;
+
+		Record(String build, long elapseTime, long time) {
+			this.build = build;
+			this.elapseTime = elapseTime;
+			this.time = time;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Give out test cases to test environments. The cases are sorted by their
+ * historical elapse time (longest first) and assigned to the environment
+ * queue which has the least load. An environment takes cases from its own
+ * queue, and takes the longest case of the most loaded queue when its own
+ * queue is empty. Without history all environments share one queue in the
+ * original order.
+ */
+public class CaseScheduler {
+
+	private Map<String, LinkedList<String>> queueMap = new HashMap<String, LinkedList<String>>();
+
+	private Map<String, Long> loadMap = new HashMap<String, Long>();
+
+	private Map<String, Long> estimateMap = new HashMap<String, Long>();
+
+	private int remaining;
+
+	/**
+	 * @param caseList
+	 * @param elapseTimes
+	 *            historical elapse time of cases. The cases which are not
+	 *            found get the average time.
+	 * @param envList
+	 */
+	public CaseScheduler(List<String> caseList, Map<String, Long> elapseTimes, List<String> envList) {
+		long total = 0;
+		int count = 0;
+		for (String tc : caseList) {
+			Long t = elapseTimes == null ? null : elapseTimes.get(tc);
+			if (t != null) {
+				total += t;
+				count++;
+			}
+		}
+		long average = count == 0 ? 0 : total / count;
+		for (String tc : caseList) {
+			Long t = elapseTimes == null ? null : elapseTimes.get(tc);
+			estimateMap.put(tc, t == null ? average : t);
+		}
+
+		List<String> sortedList = new ArrayList<String>(caseList);
+		// stable sort keeps the original order of cases with the same time
+		Collections.sort(sortedList, new Comparator<String>() {
+			public int compare(String o1, String o2) {
+				long t1 = estimateMap.get(o1);
+				long t2 = estimateMap.get(o2);
+				return t1 > t2 ? -1 : (t1 < t2 ? 1 : 0);
+			}
+		});
+
+		if (envList == null || envList.size() == 0 || count == 0) {
+			// one queue shared by all environments
+			envList = new ArrayList<String>();
+			envList.add("");
+		}
+		for (String envId : envList) {
+			getQueue(envId);
+		}
+
+		for (String tc : sortedList) {
+			String target = null;
+			for (String envId : envList) {
+				if (target == null || loadMap.get(envId) < loadMap.get(target)) {
+					target = envId;
+				}
+			}
+			getQueue(target).add(tc);
+			loadMap.put(target, loadMap.get(target) + estimateMap.get(tc));
+		}
+		this.remaining = sortedList.size();
+	}
+
+	/**
+	 * get next test case for the environment.
+	 * 
+	 * @param envId
+	 * @return null if no case left.
+	 */
+	public synchronized String next(String envId) {
+		if (remaining == 0) {
+			return null;
+		}
+
+		String owner = envId == null ? "" : envId;
+		LinkedList<String> queue = getQueue(owner);
+		if (queue.isEmpty()) {
+			// steal from the queue which has the most load
+			owner = null;
+			for (Map.Entry<String, LinkedList<String>> entry : queueMap.entrySet()) {
+				if (entry.getValue().isEmpty()) {
+					continue;
+				}
+				if (owner == null || loadMap.get(entry.getKey()) > loadMap.get(owner)) {
+					owner = entry.getKey();
+				}
+			}
+			queue = queueMap.get(owner);
+		}
+
+		String tc = queue.removeFirst();
+		loadMap.put(owner, loadMap.get(owner) - estimateMap.get(tc));
+		remaining--;
+		return tc;
+	}
+
+	public synchronized int getRemaining() {
+		return remaining;
+	}
+
+	private LinkedList<String> getQueue(String envId) {
+		LinkedList<String> queue = queueMap.get(envId);
+		if (queue == null) {
+			queue = new LinkedList<String>();
+			queueMap.put(envId, queue);
+			loadMap.put(envId, 0L);
+		}
+		return queue;
+	}
+}
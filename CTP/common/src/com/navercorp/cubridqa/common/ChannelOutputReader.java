@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.jcraft.jsch.Channel;
+
+/**
+ * Read the output of a remote command until the complete flag. The reader
+ * blocks on the channel and wakes up as soon as data arrives. Only the newly
+ * arrived characters are scanned for the flags.
+ */
+public class ChannelOutputReader {
+
+	// unlike a Timer, the scheduler keeps running after a task fails
+	private static ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "ChannelOutputReader");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private String startFlag;
+
+	private String completeFlag;
+
+	private OutputConsumer consumer;
+
+	private StringBuilder pending = new StringBuilder();
+
+	private boolean started = false;
+
+	private int scanned = 0;
+
+	private volatile boolean timeout = false;
+
+	private volatile long lastReadTime;
+
+	/**
+	 * @param startFlag
+	 *            the output before it is dropped. null if none.
+	 * @param completeFlag
+	 *            stop reading when it is met. null if read until the end.
+	 * @param consumer
+	 *            receives the output while reading. null if the output is
+	 *            returned by read().
+	 */
+	public ChannelOutputReader(String startFlag, String completeFlag, OutputConsumer consumer) {
+		this.startFlag = startFlag;
+		this.completeFlag = completeFlag;
+		this.consumer = consumer;
+		this.started = startFlag == null;
+	}
+
+	/**
+	 * read the output of the channel.
+	 * 
+	 * @param in
+	 *            the input stream of the channel.
+	 * @param channel
+	 *            disconnected when timeout.
+	 * @param timeoutMillis
+	 *            the longest time without any output. 0 if never timeout.
+	 * @return the output between the flags. Empty if the output is given to
+	 *         the consumer.
+	 * @throws IOException
+	 *             timeout or fail to read.
+	 */
+	public String read(InputStream in, final Channel channel, final long timeoutMillis) throws IOException {
+		ScheduledFuture<?> task = null;
+		lastReadTime = System.currentTimeMillis();
+		if (timeoutMillis > 0) {
+			// the timeout counts from the last output, like the polling reader did
+			Runnable check = new Runnable() {
+				public void run() {
+					if (timeout || System.currentTimeMillis() - lastReadTime < timeoutMillis) {
+						return;
+					}
+					timeout = true;
+					try {
+						channel.disconnect();
+					} catch (Throwable e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			long period = Math.min(timeoutMillis, 1000);
+			task = timer.scheduleWithFixedDelay(check, period, period, TimeUnit.MILLISECONDS);
+		}
+
+		Reader reader = new InputStreamReader(in);
+		char[] buf = new char[8 * 1024];
+		int len;
+		boolean completed = false;
+		try {
+			while (!completed && (len = reader.read(buf)) > 0) {
+				lastReadTime = System.currentTimeMillis();
+				pending.append(buf, 0, len);
+				completed = scan();
+			}
+		} catch (IOException e) {
+			if (!timeout) {
+				throw e;
+			}
+		} finally {
+			if (task != null) {
+				task.cancel(false);
+			}
+		}
+
+		if (timeout) {
+			throw new IOException("timeout to read output: no output for " + timeoutMillis + " ms");
+		}
+		if (!completed) {
+			emit(pending.length());
+		}
+		return consumer == null ? pending.toString().trim() : "";
+	}
+
+	public boolean isTimeout() {
+		return timeout;
+	}
+
+	private boolean scan() {
+		if (!started) {
+			int p = pending.indexOf(startFlag, Math.max(0, scanned - startFlag.length() + 1));
+			if (p == -1) {
+				scanned = pending.length();
+				return false;
+			}
+			pending.delete(0, p + startFlag.length());
+			started = true;
+			scanned = 0;
+		}
+
+		if (completeFlag == null) {
+			emit(pending.length());
+			return false;
+		}
+		int p = pending.indexOf(completeFlag, Math.max(0, scanned - completeFlag.length() + 1));
+		if (p != -1) {
+			pending.setLength(p);
+			emit(p);
+			return true;
+		}
+		// keep the tail which may be the beginning of the complete flag
+		emit(Math.max(0, pending.length() - completeFlag.length() + 1));
+		scanned = pending.length();
+		return false;
+	}
+
+	private void emit(int end) {
+		if (consumer == null || end == 0) {
+			return;
+		}
+		consumer.onOutput(pending.substring(0, end));
+		pending.delete(0, end);
+	}
+
+	public interface OutputConsumer {
+		public void onOutput(String output);
+	}
+}
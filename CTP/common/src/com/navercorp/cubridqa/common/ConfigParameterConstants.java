@@ -77,6 +77,7 @@ public class ConfigParameterConstants {
 	public static final String HA_HARD_DELETE_ON_REBUILD_DATABASE_YN = "ha_hard_delete_on_rebuild_database_yn";
 	public static final String HA_CREATEDB_SSH_FEEDBACK_TIMEOUT = "ha_createdb_ssh_feedback_timeout";
 	public static final String HA_WAITDB_SSH_FEEDBACK_TIMEOUT = "ha_waitdb_ssh_feedback_timeout";
+	public static final String HA_CHECK_INTERFACE_TYPE = "ha_check_interface_type";
 	// TODO : this should be implemented for all tests
 	public static final String CLEANUP_CUBRID_LOGS_BEFORE_TEST_YN = "cleanup_cubrid_logs_before_test_yn";
 	public static final String STOP_AFTER_CORE_COUNT = "stop_after_core_count";
@@ -93,8 +94,10 @@ public class ConfigParameterConstants {
 	public static final String RESERVE_DISK_SPACE_SIZE_DEFAULT_VALUE = "2G";  //default value for param reserve_disk_space_size
 	
 	public static final String ENABLE_STATUS_TRACE_YES_OR_NO = "enable_status_trace_yn";
+	public static final String ENABLE_MONITOR_AGENT_YES_OR_NO = "enable_monitor_agent_yn";
 	public static final String ENABLE_SIKP_MAKE_LOCALE_YES_OR_NO = "enable_skip_make_locale_yn";
 	public static final String ENABLE_SAVE_LOG_ONCE_FAIL_YES_OR_NO = "enable_save_log_once_fail_yn";
+	public static final String ENABLE_COMBINED_CASE_SCRIPT_YES_OR_NO = "enable_combined_case_script_yn";
 	public static final String DELETE_TESTCASE_AFTER_EACH_EXECUTION_YES_OR_NO = "delete_testcase_after_each_execution_yn";
 	public static final String CLEAN_PROCESS_AFTER_EXECUTION_QUIT_YES_OR_NO = "clean_processes_after_execution_quit_yn";
 	public static final String TEST_CONTINUE_YES_OR_NO = "test_continue_yn";
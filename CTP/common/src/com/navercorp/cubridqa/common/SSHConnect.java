@@ -87,35 +87,15 @@ public class SSHConnect {
 		ChannelExec exec = (ChannelExec) session.openChannel("exec");
 
 		InputStream in = exec.getInputStream();
-		byte[] b = new byte[1024];
 
 		exec.setCommand(scripts.getCommands());
 		exec.connect();
 
-		StringBuffer buffer = new StringBuffer();
-
-		int len = 0;
-		while ((len = in.read(b)) > 0) {
-			buffer.append(new String(b, 0, len));
-
-			if (buffer.toString().indexOf(ShellInput.COMP_FLAG_RESULT) >= 0) {
-				break;
-			}
-		}
-
-		exec.disconnect();
-
-		String result = buffer.toString();
-
-		int p = result.indexOf(ShellInput.START_FLAG_RESULT);
-		if (p != -1) {
-			result = result.substring(p + ShellInput.START_FLAG_RESULT.length());
-		}
-		p = result.indexOf(ShellInput.COMP_FLAG_RESULT);
-		if (p != -1) {
-			result = result.substring(0, p);
+		try {
+			return new ChannelOutputReader(ShellInput.START_FLAG_RESULT, ShellInput.COMP_FLAG_RESULT, null).read(in, exec, 0);
+		} finally {
+			exec.disconnect();
 		}
-		return result.trim();
 	}
 
 	public void wait(ShellInput scripts, String expectKeyworkInclude) throws Exception {
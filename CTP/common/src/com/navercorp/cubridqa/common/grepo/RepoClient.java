@@ -26,10 +26,18 @@
 
 package com.navercorp.cubridqa.common.grepo;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RMISecurityManager;
@@ -80,14 +88,145 @@ public class RepoClient {
 		if (file == null)
 			return null;
 
+		InputStream in = StreamFileInputStream.open(service, getServiceHost(), file);
+		if (in != null) {
+			return in;
+		}
 		return new RemoteFileInputStream(service, file);
 	}
 
+	private static String getServiceHost() {
+		try {
+			return new URI(url).getHost();
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
 	private static RepoService getRepoService() throws MalformedURLException, RemoteException, NotBoundException {
 		return (RepoService) Naming.lookup(url);
 	}
 }
 
+/**
+ * read the package from the stream port of grepo service. If the download
+ * breaks, it continues from the offset already read.
+ */
+class StreamFileInputStream extends InputStream {
+
+	private final static int MAX_RESUME = 5;
+
+	String host;
+	int port;
+	String remoteFilename;
+	long pos = 0;
+	long length = -1;
+	int resumeCount = 0;
+	Socket socket;
+	InputStream in;
+
+	/**
+	 * return null if the service has no stream port, then RMI is used.
+	 */
+	static InputStream open(RepoService service, String host, String remoteFilename) {
+		int port;
+		try {
+			port = service.getStreamPort();
+		} catch (Exception e) {
+			// old service without streaming
+			return null;
+		}
+		if (port <= 0 || host == null) {
+			return null;
+		}
+		try {
+			return new StreamFileInputStream(host, port, remoteFilename);
+		} catch (IOException e) {
+			System.out.println("Fail to stream " + remoteFilename + " from " + host + ":" + port + " (" + e.getMessage() + "), use RMI instead.");
+			return null;
+		}
+	}
+
+	private StreamFileInputStream(String host, int port, String remoteFilename) throws IOException {
+		this.host = host;
+		this.port = port;
+		this.remoteFilename = remoteFilename;
+		connect();
+	}
+
+	private void connect() throws IOException {
+		close();
+		socket = new Socket();
+		socket.connect(new InetSocketAddress(host, port), 10 * 1000);
+		socket.setSoTimeout(60 * 1000);
+		OutputStream out = socket.getOutputStream();
+		out.write(("GET " + remoteFilename + " " + pos + "\n").getBytes("UTF-8"));
+		out.flush();
+
+		in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+		String header = readLine(in);
+		if (header == null || !header.startsWith("OK ")) {
+			close();
+			throw new IOException("bad response: " + header);
+		}
+		length = Long.parseLong(header.substring(3).trim());
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != -1 && c != '\n') {
+			line.write(c);
+		}
+		return c == -1 && line.size() == 0 ? null : line.toString("UTF-8");
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (true) {
+			if (pos >= length) {
+				return -1;
+			}
+			try {
+				int cnt = in.read(b, off, (int) Math.min(len, length - pos));
+				if (cnt == -1) {
+					throw new EOFException("closed at " + pos + " of " + length);
+				}
+				pos += cnt;
+				return cnt;
+			} catch (IOException e) {
+				if (resumeCount++ >= MAX_RESUME) {
+					throw e;
+				}
+				System.out.println("Resume " + remoteFilename + " from " + pos + " (" + e.getMessage() + ")");
+				connect();
+			}
+		}
+	}
+
+	@Override
+	public int read(byte[] b) throws IOException {
+		return read(b, 0, b.length);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (socket != null) {
+			socket.close();
+			socket = null;
+		}
+	}
+}
+
 class RemoteFileInputStream extends InputStream {
 
 	RepoService service;
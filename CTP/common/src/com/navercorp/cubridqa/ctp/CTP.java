@@ -24,14 +24,23 @@
  */
 package com.navercorp.cubridqa.ctp;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -40,7 +49,9 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
 
 import com.navercorp.cubridqa.common.CommonUtils;
+import com.navercorp.cubridqa.common.ConfigParameterConstants;
 import com.navercorp.cubridqa.common.IniData;
+import com.navercorp.cubridqa.common.IniData.Section;
 import com.navercorp.cubridqa.common.LocalInvoker;
 
 public class CTP {
@@ -51,6 +62,7 @@ public class CTP {
 	static {
 		OPTIONS.addOption("c", "config", true, "provide a configuration file");
 		OPTIONS.addOption(null, "interactive", false, "interactive mode to run single test case or cases in a folder");
+		OPTIONS.addOption(null, "parallel", false, "run tasks which use different hosts, ports and CUBRID at the same time");
 		OPTIONS.addOption("h", "help", false, "show help");
 		OPTIONS.addOption("v", "version", false, "show version");
 	}
@@ -122,81 +134,292 @@ public class CTP {
 		if (isUtility)
 			return;
 
+		boolean interactiveMode = cmd.hasOption("interactive");
+		if (cmd.hasOption("parallel") && !interactiveMode && taskList.size() > 1) {
+			executeInParallel(taskList, configFilename);
+			return;
+		}
+
+		for (String task : taskList) {
+			executeTask(task, configFilename, interactiveMode);
+		}
+	}
+
+	private static void executeTask(String task, String configFilename, boolean interactiveMode) {
 		String taskLabel;
 		long elapseTime;
 		Date startDate, endDate;
-		boolean interactiveMode = cmd.hasOption("interactive");
-		for (String task : taskList) {
-			taskLabel = task.toUpperCase();
-			startDate = new java.util.Date();
-			System.out.println();
-			System.out.println("====================================== " + taskLabel + " ==========================================");
+		ComponentEnum component;
+
+		taskLabel = task.toUpperCase();
+		startDate = new java.util.Date();
+		System.out.println();
+		System.out.println("====================================== " + taskLabel + " ==========================================");
+		try {
 			try {
+				component = ComponentEnum.valueOf(task.trim().toUpperCase());
+			} catch (Exception e) {
+				showHelp(e.getMessage());
+				return;
+			}
+
+			System.out.println("[" + taskLabel + "] TEST STARTED (" + startDate + ")");
+			System.out.println();
+			switch (component) {
+			case SQL:
+				executeSQL(getConfigData(taskLabel, configFilename, "sql"), "sql", interactiveMode, false);
+				break;
+			case MEDIUM:
+				executeSQL(getConfigData(taskLabel, configFilename, "medium"), "medium", interactiveMode, false);
+				break;
+			case KCC:
+				executeSQL(getConfigData(taskLabel, configFilename, "kcc"), "kcc", interactiveMode, false);
+				break;
+			case NEIS05:
+				executeSQL(getConfigData(taskLabel, configFilename, "neis05"), "neis05", interactiveMode, false);
+				break;
+			case NEIS08:
+				executeSQL(getConfigData(taskLabel, configFilename, "neis08"), "neis08", interactiveMode, false);
+				break;
+			case SQL_BY_CCI:
+				executeSQL(getConfigData(taskLabel, configFilename, "sql_by_cci"), "sql_by_cci", interactiveMode, true);
+				break;
+			case SHELL:
+				executeShell(getConfigData(taskLabel, configFilename, "shell"), "shell", null);
+				break;
+			case RQG:
+				executeShell(getConfigData(taskLabel, configFilename, "rqg"), "rqg", "rqg");
+				break;
+			case ISOLATION:
+				executeIsolation(getConfigData(taskLabel, configFilename, "isolation"), "isolation");
+				break;
+			case HA_REPL:
+				executeHaRepl(getConfigData(taskLabel, configFilename, "ha_repl"), "ha_repl");
+				break;
+			case JDBC:
+				executeJdbc(getConfigData(taskLabel, configFilename, "jdbc"), "jdbc");
+				break;
+			case UNITTEST:
+				IniData configData = null;
 				try {
-					component = ComponentEnum.valueOf(task.trim().toUpperCase());
-				} catch (Exception e) {
-					showHelp(e.getMessage());
-					continue;
+					configData = getConfigData(taskLabel, configFilename, "unittest");
+				} catch (FileNotFoundException e1) {
+					configData = null;
 				}
+				executeUnitTest(configData, "unittest");
+				break;
+			}
+
+			endDate = new java.util.Date();
+			elapseTime = (long) ((endDate.getTime() - startDate.getTime()) / 1000.0);
+			if (!interactiveMode) {
+				System.out.println("[" + taskLabel + "] TEST END (" + endDate + ")");
+				System.out.println("[" + taskLabel + "] ELAPSE TIME: " + elapseTime + " seconds");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("[" + taskLabel + "] ERROR: " + e.getMessage());
+		}
+	}
 
-				System.out.println("[" + taskLabel + "] TEST STARTED (" + startDate + ")");
-				System.out.println();
-				switch (component) {
-				case SQL:
-					executeSQL(getConfigData(taskLabel, configFilename, "sql"), "sql", interactiveMode, false);
-					break;
-				case MEDIUM:
-					executeSQL(getConfigData(taskLabel, configFilename, "medium"), "medium", interactiveMode, false);
-					break;
-				case KCC:
-					executeSQL(getConfigData(taskLabel, configFilename, "kcc"), "kcc", interactiveMode, false);
-					break;
-				case NEIS05:
-					executeSQL(getConfigData(taskLabel, configFilename, "neis05"), "neis05", interactiveMode, false);
-					break;
-				case NEIS08:
-					executeSQL(getConfigData(taskLabel, configFilename, "neis08"), "neis08", interactiveMode, false);
-					break;
-				case SQL_BY_CCI:
-					executeSQL(getConfigData(taskLabel, configFilename, "sql_by_cci"), "sql_by_cci", interactiveMode, true);
-					break;
-				case SHELL:
-					executeShell(getConfigData(taskLabel, configFilename, "shell"), "shell", null);
-					break;
-				case RQG:
-					executeShell(getConfigData(taskLabel, configFilename, "rqg"), "rqg", "rqg");
-					break;
-				case ISOLATION:
-					executeIsolation(getConfigData(taskLabel, configFilename, "isolation"), "isolation");
-					break;
-				case HA_REPL:
-					executeHaRepl(getConfigData(taskLabel, configFilename, "ha_repl"), "ha_repl");
-					break;
-				case JDBC:
-					executeJdbc(getConfigData(taskLabel, configFilename, "jdbc"), "jdbc");
-					break;
-				case UNITTEST:
-					IniData configData = null;
-					try {
-						configData = getConfigData(taskLabel, configFilename, "unittest");
-					} catch (FileNotFoundException e1) {
-						configData = null;
+	/**
+	 * run tasks at the same time, each in its own JVM. A task waits only for
+	 * the earlier tasks which share any host, port or CUBRID installation
+	 * with it, so the order of conflicting tasks is kept.
+	 */
+	private static void executeInParallel(List<String> taskList, final String configFilename) throws InterruptedException {
+		PrintStream console = System.out;
+		PrintStream errConsole = System.err;
+		System.setOut(new PrintStream(new ConsolePrefixStream(console), true));
+		System.setErr(new PrintStream(new ConsolePrefixStream(errConsole), true));
+
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		ArrayList<Set<String>> resourcesList = new ArrayList<Set<String>>();
+		try {
+			for (int i = 0; i < taskList.size(); i++) {
+				final String task = taskList.get(i);
+				String label = task.toUpperCase();
+				if (taskList.indexOf(task) != i || taskList.lastIndexOf(task) != i) {
+					label = label + "-" + (i + 1);
+				}
+				final String taskLabel = label;
+
+				Set<String> resources = getTaskResources(task, configFilename);
+				final ArrayList<Thread> waitList = new ArrayList<Thread>();
+				StringBuilder waitLabels = new StringBuilder();
+				for (int j = 0; j < i; j++) {
+					if (!Collections.disjoint(resources, resourcesList.get(j))) {
+						waitList.add(threads.get(j));
+						waitLabels.append(" ").append(threads.get(j).getName());
 					}
-					executeUnitTest(configData, "unittest");
-					break;
 				}
+				System.out.println("[PARALLEL] " + taskLabel + (waitList.size() == 0 ? " starts now" : " waits for" + waitLabels));
+
+				Thread thread = new Thread(taskLabel) {
+					public void run() {
+						ConsolePrefixStream.setLabel(taskLabel);
+						try {
+							for (Thread t : waitList) {
+								t.join();
+							}
+						} catch (InterruptedException e) {
+							return;
+						}
+						executeTaskInProcess(task, configFilename);
+					}
+				};
+				threads.add(thread);
+				resourcesList.add(resources);
+				thread.start();
+			}
+
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} finally {
+			System.out.flush();
+			System.err.flush();
+			System.setOut(console);
+			System.setErr(errConsole);
+		}
+	}
+
+	/**
+	 * run the task in a child JVM, so that a suite which calls System.exit
+	 * or breaks its JVM does not stop the other tasks.
+	 */
+	private static void executeTaskInProcess(String task, String configFilename) {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(CTP.class.getName());
+		command.add(task);
+		if (CommonUtils.isEmpty(configFilename) == false) {
+			command.add("-c");
+			command.add(configFilename);
+		}
+
+		Process process = null;
+		try {
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			process = builder.start();
+			process.getOutputStream().close();
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				System.out.println(line);
+			}
+			reader.close();
+
+			int exitCode = process.waitFor();
+			if (exitCode != 0) {
+				System.out.println("[" + task.toUpperCase() + "] ERROR: exit with code " + exitCode);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("[" + task.toUpperCase() + "] ERROR: " + e.getMessage());
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * the resources which a task occupies: ssh accounts, ports on its hosts
+	 * and the local CUBRID.
+	 */
+	private static Set<String> getTaskResources(String task, String configFilename) {
+		Set<String> resources = new HashSet<String>();
+		ComponentEnum component;
+		try {
+			component = ComponentEnum.valueOf(task.trim().toUpperCase());
+		} catch (Exception e) {
+			return resources;
+		}
+
+		ArrayList<String> hosts = new ArrayList<String>();
+		switch (component) {
+		case SHELL:
+		case RQG:
+		case ISOLATION:
+		case HA_REPL:
+			break;
+		default:
+			// run on local CUBRID
+			resources.add("cubrid:" + System.getenv("CUBRID"));
+			resources.add("ssh:" + System.getProperty("user.name") + "@localhost");
+			hosts.add("localhost");
+		}
+
+		File configFile = getConfigFile(configFilename, task.trim().toLowerCase());
+		if (!configFile.exists()) {
+			return resources;
+		}
+		// tasks with the same configuration test the same environment
+		resources.add("config:" + configFile.getAbsolutePath());
+		Section section;
+		try {
+			section = new IniData(configFile).getSection(null);
+		} catch (Exception e) {
+			return resources;
+		}
+		if (section == null) {
+			return resources;
+		}
 
-				endDate = new java.util.Date();
-				elapseTime = (long) ((endDate.getTime() - startDate.getTime()) / 1000.0);
-				if (!interactiveMode) {
-					System.out.println("[" + taskLabel + "] TEST END (" + endDate + ")");
-					System.out.println("[" + taskLabel + "] ELAPSE TIME: " + elapseTime + " seconds");
+		HashMap<String, String> data = section.getData();
+		String prefix, user;
+		for (String key : data.keySet()) {
+			if (key.endsWith(ConfigParameterConstants.TEST_INSTANCE_HOST_SUFFIX)) {
+				prefix = key.substring(0, key.length() - ConfigParameterConstants.TEST_INSTANCE_HOST_SUFFIX.length());
+				user = section.getAndTrans(prefix + ConfigParameterConstants.TEST_INSTANCE_USER_SUFFIX);
+				addHost(resources, hosts, user, section.getAndTrans(key));
+			} else if (key.endsWith(ConfigParameterConstants.TEST_INSTANCE_RELATED_HOSTS_SUFFIX)) {
+				prefix = key.substring(0, key.length() - ConfigParameterConstants.TEST_INSTANCE_RELATED_HOSTS_SUFFIX.length());
+				user = section.getAndTrans(prefix + ConfigParameterConstants.TEST_INSTANCE_USER_SUFFIX);
+				String relatedHosts = section.getAndTrans(key);
+				if (relatedHosts != null) {
+					for (String h : relatedHosts.split(",")) {
+						addHost(resources, hosts, user, h);
+					}
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
-				System.out.println("[" + taskLabel + "] ERROR: " + e.getMessage());
 			}
 		}
+
+		String value;
+		for (String key : data.keySet()) {
+			String lowerKey = key.toLowerCase();
+			if (key.endsWith(ConfigParameterConstants.TEST_INSTANCE_PORT_SUFFIX) || !(lowerKey.endsWith("port") || lowerKey.endsWith("port_id"))) {
+				continue;
+			}
+			value = section.getAndTrans(key);
+			if (value == null || !value.trim().matches("[0-9]+")) {
+				continue;
+			}
+			for (String h : hosts) {
+				resources.add("port:" + h + ":" + value.trim());
+			}
+		}
+		return resources;
+	}
+
+	private static void addHost(Set<String> resources, ArrayList<String> hosts, String user, String host) {
+		if (CommonUtils.isEmpty(host)) {
+			return;
+		}
+		host = host.trim().toLowerCase();
+		if (host.equals("127.0.0.1") || host.equals("localhost")) {
+			host = "localhost";
+		}
+		resources.add("ssh:" + (user == null ? "" : user.trim()) + "@" + host);
+		if (!hosts.contains(host)) {
+			hosts.add(host);
+		}
 	}
 
 	private static void executeSQL(IniData config, String suite, boolean interactiveMode, boolean useCCI) throws IOException {
@@ -307,13 +530,16 @@ public class CTP {
 		}
 	}
 
-	private static IniData getConfigData(String taskLable, String configFilename, String suite) throws Exception {
-		File configFile;
+	private static File getConfigFile(String configFilename, String suite) {
 		if (CommonUtils.isEmpty(configFilename)) {
-			configFile = new File(CommonUtils.concatFile(CommonUtils.concatFile(ctpHome, "conf"), suite + ".conf"));
+			return new File(CommonUtils.concatFile(CommonUtils.concatFile(ctpHome, "conf"), suite + ".conf"));
 		} else {
-			configFile = new File(configFilename);
+			return new File(configFilename);
 		}
+	}
+
+	private static IniData getConfigData(String taskLable, String configFilename, String suite) throws Exception {
+		File configFile = getConfigFile(configFilename, suite);
 
 		if (configFile.exists() == false) {
 			throw new FileNotFoundException("Not found configuration file");
@@ -359,6 +585,7 @@ public class CTP {
 		System.out.println("	ctp.sh unittest #use default configuration file: " + ctpHome + File.separator + "conf" + File.separator + "unittest.conf");
 		System.out.println("	ctp.sh sql medium  	#run both sql and medium with default configuration");
 		System.out.println("	ctp.sh medium medium 	#execute medium twice");
+		System.out.println("	ctp.sh shell ha_repl --parallel -c conf/all.conf 	#run both at the same time if they use different environments");
 		System.out.println("	ctp.sh webconsole start	#start web console to view sql test results");
 
 		System.out.println();
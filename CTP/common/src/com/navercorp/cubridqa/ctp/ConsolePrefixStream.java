@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.ctp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Console of tasks which run at the same time. Each thread writes to its own
+ * line buffer, and a whole line is printed with the label of the task which
+ * started the thread, so that the outputs of tasks are not mixed.
+ */
+public class ConsolePrefixStream extends OutputStream {
+
+	private final static InheritableThreadLocal<String> label = new InheritableThreadLocal<String>();
+
+	private final PrintStream target;
+
+	private final ThreadLocal<ByteArrayOutputStream> lineBuffer = new ThreadLocal<ByteArrayOutputStream>() {
+		protected ByteArrayOutputStream initialValue() {
+			return new ByteArrayOutputStream();
+		}
+	};
+
+	public ConsolePrefixStream(PrintStream target) {
+		this.target = target;
+	}
+
+	/**
+	 * set the label for the current thread and the threads it will start.
+	 */
+	public static void setLabel(String name) {
+		label.set(name);
+	}
+
+	public void write(int b) throws IOException {
+		ByteArrayOutputStream buffer = lineBuffer.get();
+		buffer.write(b);
+		if (b == '\n') {
+			flushLine(buffer);
+		}
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		ByteArrayOutputStream buffer = lineBuffer.get();
+		int start = off;
+		for (int i = off; i < off + len; i++) {
+			if (b[i] == '\n') {
+				buffer.write(b, start, i + 1 - start);
+				flushLine(buffer);
+				start = i + 1;
+			}
+		}
+		buffer.write(b, start, off + len - start);
+	}
+
+	public void flush() throws IOException {
+		// keep a partial line until it is ended, except for unlabeled threads
+		if (label.get() == null) {
+			flushLine(lineBuffer.get());
+		}
+	}
+
+	private void flushLine(ByteArrayOutputStream buffer) {
+		if (buffer.size() == 0) {
+			return;
+		}
+		String name = label.get();
+		synchronized (target) {
+			if (name != null) {
+				target.print("[" + name + "] ");
+			}
+			target.write(buffer.toByteArray(), 0, buffer.size());
+			target.flush();
+		}
+		buffer.reset();
+	}
+}
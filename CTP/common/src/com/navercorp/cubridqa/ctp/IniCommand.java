@@ -28,6 +28,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -50,6 +52,17 @@ public class IniCommand {
 	 * @throws Exception
 	 */
 	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].equals("--serve")) {
+			new IniResolver(new File(args[1])).serve();
+			return;
+		}
+		execute(args, new File(".").getAbsoluteFile(), System.out);
+	}
+
+	/**
+	 * run one ini command. Relative filenames are resolved against workDir.
+	 */
+	public static void execute(String[] args, File workDir, PrintStream out) throws Exception {
 
 		Options options = new Options();
 		options.addOption("s", "section", true, "section name in ini file");
@@ -59,6 +72,8 @@ public class IniCommand {
 		options.addOption("d", "delete", true, "delete keys");
 		options.addOption(null, "separator", true, "separator, default is to return");
 		options.addOption(null, "linux-path", false, "means the value is a path and be convert to cygwin-style");
+		options.addOption(null, "export", false, "print keys (all in section if no key given) as shell assignments");
+		options.addOption(null, "prefix", true, "prefix of variable names for export");
 
 		options.addOption("h", "help", false, "show help");
 
@@ -69,12 +84,12 @@ public class IniCommand {
 			parser = new PosixParser();
 			cmd = parser.parse(options, args);
 		} catch (Exception e) {
-			showHelp(e.getMessage(), options);
+			showHelp(e.getMessage(), options, out);
 			return;
 		}
 
 		if (cmd.hasOption("h") || cmd.getArgList().size() == 0) {
-			showHelp(null, options);
+			showHelp(null, options, out);
 			return;
 		}
 
@@ -89,14 +104,12 @@ public class IniCommand {
 			sectionName = cmd.getOptionValue("s").trim();
 		}
 
-		ArrayList<String> stdList = readInputStream(cmd.getOptionValue("update-from-file"));
+		ArrayList<String> stdList = readInputStream(workDir, cmd.getOptionValue("update-from-file"));
 
-		String configFilename = CommonUtils.getFixedPath(cmd.getArgs()[0].trim());
+		File configFile = resolveFile(workDir, cmd.getArgs()[0]);
+		String configFilename = configFile.getAbsolutePath();
 
-		File configFile = new File(configFilename);
-		configFilename = configFile.getAbsolutePath();
-
-		if (cmd.getArgList().size() == 3 || cmd.hasOption("u") || stdList.size() > 0) {
+		if ((cmd.getArgList().size() == 3 && !cmd.hasOption("export")) || cmd.hasOption("u") || stdList.size() > 0) {
 			if (configFile.exists() == false) {
 				configFile.createNewFile();
 			}
@@ -104,6 +117,12 @@ public class IniCommand {
 
 		IniData config = new IniData(configFilename);
 
+		if (cmd.hasOption("export")) {
+			String prefix = cmd.hasOption("prefix") ? cmd.getOptionValue("prefix").trim() : "";
+			exportKeys(config, sectionName, cmd.getArgs(), prefix, toLinuxPath, out);
+			return;
+		}
+
 		String batch, key, value;
 		String[] arr, kv;
 		if (cmd.hasOption("u") || stdList.size() > 0) {
@@ -159,9 +178,9 @@ public class IniCommand {
 				while (it.hasNext()) {
 					key = (String) it.next();
 					value = section.getAndTrans(key);
-					System.out.print(key + "=" + value + separator);
+					out.print(key + "=" + value + separator);
 				}
-				System.out.println();
+				out.println();
 			}
 		}
 
@@ -176,7 +195,7 @@ public class IniCommand {
 				if (toLinuxPath) {
 					value = CommonUtils.getLinuxStylePath(value);
 				}
-				System.out.print(value + "\n");
+				out.print(value + "\n");
 
 			}
 		} else if (cmd.getArgList().size() == 3) {
@@ -186,12 +205,54 @@ public class IniCommand {
 		}
 	}
 
-	private static ArrayList<String> readInputStream(String fname) throws IOException {
+	/**
+	 * print 'name=value' lines which can be evaluated by shell, so that many
+	 * keys are read by one command.
+	 */
+	private static void exportKeys(IniData config, String sectionName, String[] args, String prefix, boolean toLinuxPath, PrintStream out) {
+		ArrayList<String> keys = new ArrayList<String>();
+		for (int i = 1; i < args.length; i++) {
+			keys.add(args[i]);
+		}
+		if (keys.size() == 0) {
+			Section section = config.getSection(sectionName);
+			if (section == null) {
+				return;
+			}
+			for (String key : section.getData().keySet()) {
+				keys.add(key);
+			}
+		}
+
+		String value;
+		for (String key : keys) {
+			value = config.getAndTrans(sectionName, key);
+			if (value == null) {
+				value = "";
+			} else {
+				value = IniData.translateValue(value);
+				if (toLinuxPath) {
+					value = CommonUtils.getLinuxStylePath(value);
+				}
+			}
+			out.print(prefix + key.replaceAll("[^A-Za-z0-9_]", "_") + "='" + value.replace("'", "'\\''") + "'\n");
+		}
+	}
+
+	private static File resolveFile(File workDir, String fname) {
+		File file = new File(CommonUtils.getFixedPath(fname.trim()));
+		if (!file.isAbsolute()) {
+			file = new File(workDir, file.getPath());
+		}
+		return file;
+	}
+
+	private static ArrayList<String> readInputStream(File workDir, String fname) throws IOException {
 		ArrayList<String> list = new ArrayList<String>();
 		if (fname == null)
 			return list;
 
-		File file = new File(CommonUtils.getFixedPath(fname));
+		File file = resolveFile(workDir, fname);
 		if (file.exists() == false)
 			return list;
 
@@ -222,20 +283,24 @@ public class IniCommand {
 		return list;
 	}
 
-	private static void showHelp(String error, Options options) {
+	private static void showHelp(String error, Options options, PrintStream out) {
 		if (error != null) {
-			System.out.println("Error: " + error);
-			System.out.println();
+			out.println("Error: " + error);
+			out.println();
 		} else {
-			System.out.println("A utility to read/write ini file");
+			out.println("A utility to read/write ini file");
 		}
 		HelpFormatter formatter = new HelpFormatter();
-		formatter.printHelp("ini <options> <config_file> <key> {value} ", options);
-		System.out.println();
-		System.out.println("For example: ");
-		System.out.println("	ini -s common cubrid.conf cubrid_port_id   # read one parameter");
-		System.out.println("	ini -s common cubrid.conf cubrid_port_id 15533  # set new value for one parameter");
-		System.out.println("	ini -s common cubrid.conf # read all parameters within section");
-		System.out.println();
+		PrintWriter pw = new PrintWriter(out);
+		formatter.printHelp(pw, formatter.getWidth(), "ini <options> <config_file> <key> {value} ", null, options, formatter.getLeftPadding(), formatter.getDescPadding(), null);
+		pw.flush();
+		out.println();
+		out.println("For example: ");
+		out.println("	ini -s common cubrid.conf cubrid_port_id   # read one parameter");
+		out.println("	ini -s common cubrid.conf cubrid_port_id 15533  # set new value for one parameter");
+		out.println("	ini -s common cubrid.conf # read all parameters within section");
+		out.println("	ini -s common --export --prefix=conf_ cubrid.conf cubrid_port_id data_buffer_size  # read many parameters as shell variables");
+		out.println("	ini --serve <port_file>  # keep a resolver running, ini.sh uses it if CTP_INI_PORT is set");
+		out.println();
 	}
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.ctp;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * A long-lived ini reader/writer, so that scripts which call ini many times
+ * pay for one JVM start only. The request is the token, the working
+ * directory, the count of arguments and the arguments, one per line. The
+ * response is the exit status line and the output of the command, and the
+ * connection is closed after it.
+ * 
+ * The port and a random token are written to the port file, which only the
+ * owner can read. A request without the token is refused. The resolver
+ * stops when the port file is removed.
+ */
+public class IniResolver {
+
+	private static final int READ_TIMEOUT = 10 * 1000;
+
+	private File portFile;
+
+	private String token;
+
+	public IniResolver(File portFile) {
+		this.portFile = portFile.getAbsoluteFile();
+	}
+
+	public void serve() throws IOException {
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		server.setSoTimeout(1000);
+		try {
+			token = newToken();
+			writePort(server.getLocalPort());
+
+			while (portFile.exists()) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				} catch (SocketTimeoutException e) {
+					continue;
+				}
+				try {
+					socket.setSoTimeout(READ_TIMEOUT);
+					handle(socket);
+				} catch (Exception e) {
+					System.out.println("fail to resolve ini request: " + e.getMessage());
+				} finally {
+					socket.close();
+				}
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	private void handle(Socket socket) throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		String requestToken = reader.readLine();
+		if (requestToken == null || !MessageDigest.isEqual(token.getBytes(), requestToken.getBytes())) {
+			System.out.println("refuse ini request without the token from " + socket.getRemoteSocketAddress());
+			return;
+		}
+
+		String workDir = reader.readLine();
+		String count = reader.readLine();
+		if (workDir == null || count == null) {
+			return;
+		}
+		String[] args = new String[Integer.parseInt(count.trim())];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = reader.readLine();
+			if (args[i] == null) {
+				return;
+			}
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(output, false);
+		int status = 0;
+		try {
+			IniCommand.execute(args, new File(workDir), out);
+		} catch (Exception e) {
+			out.println("Error: " + e.getMessage());
+			status = 1;
+		}
+		out.flush();
+
+		OutputStream socketOut = socket.getOutputStream();
+		socketOut.write((status + "\n").getBytes());
+		output.writeTo(socketOut);
+		socketOut.flush();
+	}
+
+	private static String newToken() {
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(bytes[i] & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private void writePort(int port) throws IOException {
+		// written aside and renamed, so that a reader never sees a partial port
+		File tmp = new File(portFile.getPath() + ".tmp");
+		tmp.delete();
+		if (!tmp.createNewFile()) {
+			throw new IOException("fail to create port file " + tmp);
+		}
+		// only the owner can read the token
+		tmp.setReadable(false, false);
+		tmp.setWritable(false, false);
+		tmp.setReadable(true, true);
+		tmp.setWritable(true, true);
+		FileWriter writer = new FileWriter(tmp);
+		try {
+			writer.write(port + "\n" + token + "\n");
+		} finally {
+			writer.close();
+		}
+		if (!tmp.renameTo(portFile)) {
+			tmp.delete();
+			throw new IOException("fail to write port file " + portFile);
+		}
+	}
+}
@@ -37,4 +37,6 @@ public interface RepoService extends Remote {
 
 	public String hello() throws Exception;
 
+	public int getStreamPort() throws Exception;
+
 }
@@ -25,48 +25,282 @@
 
 package com.navercorp.cubridqa.ha_repl;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.common.LocalInvoker;
 
 public class CheckDiff {
-	
+
+	/* beyond this edit distance the diff is left to the external tool */
+	private static final int MAX_EDIT_DISTANCE = 2000;
+
+	/* keeps the bytes of the dumps whatever their encoding is */
+	private static final String DUMP_CHARSET = "ISO-8859-1";
+
 	private boolean isSame;
 	private boolean hasPatch;
-	
+	private int firstMismatchLine = -1;
+	private int hunkCount = 0;
+
 	public int check(String filePath, String masterName, String slaveOrReplicaName, String fileSuffix) {
 		String masterFile = filePath + "." + masterName + ".dump";
 		String slaveFile = filePath + "." + slaveOrReplicaName + ".dump";
+		// the patch is shared by all slaves and replicas
 		String master_slaveOrReplicaDiffFile = filePath + "." + masterName + ".slave1." + fileSuffix;
-		String master_slaveOrReplicaDiffFileTemp = master_slaveOrReplicaDiffFile + ".temp";
-		
-		StringBuilder scripts = new StringBuilder();
-		scripts.append("diff '" + masterFile + "' '" + slaveFile + "' > '" + master_slaveOrReplicaDiffFileTemp + "' 2>&1\n");
-		scripts.append("if [ $? -eq 0 ]; then\n");
-		scripts.append("    echo PASS BASE\n");
-		scripts.append("else\n");
-		scripts.append("    if [ -f '"+ master_slaveOrReplicaDiffFile +"' ]; then");
-		scripts.append("        diff '" + master_slaveOrReplicaDiffFile + "' '" + master_slaveOrReplicaDiffFileTemp + "'\n");
-		scripts.append("        if [ $? -eq 0 ]; then\n");
-		scripts.append("            echo PASS PATCH\n");
-		scripts.append("        else\n");
-		scripts.append("            echo FAIL PATCH\n");
-		scripts.append("        fi\n");
-		scripts.append("    else\n");
-		scripts.append("        echo FAIL BASE\n");
-		scripts.append("    fi\n");
-		scripts.append("fi\n");
-		int shellType = CommonUtils.getShellType(false);
-		String result = LocalInvoker.exec(scripts.toString(), shellType, false);
-		this.isSame = result.indexOf("PASS") != -1;
-		this.hasPatch = result.indexOf("PATCH") != -1;
-		return isSame ? 0: 1;
+		String master_slaveOrReplicaDiffFileTemp = filePath + "." + masterName + "." + slaveOrReplicaName + "." + fileSuffix + ".temp";
+
+		this.isSame = false;
+		this.hasPatch = false;
+		this.firstMismatchLine = -1;
+		this.hunkCount = 0;
+
+		String diff;
+		try {
+			ArrayList<String> masterLines = readLines(masterFile);
+			ArrayList<String> slaveLines = readLines(slaveFile);
+			diff = diff(masterLines, slaveLines);
+		} catch (IOException e) {
+			diff = "diff: " + e.getMessage() + "\n";
+		}
+
+		File tempFile = new File(master_slaveOrReplicaDiffFileTemp);
+		if (diff != null && diff.length() == 0) {
+			tempFile.delete();
+			this.isSame = true;
+			return 0;
+		}
+
+		if (diff == null) {
+			diff = execDiff(masterFile, slaveFile, master_slaveOrReplicaDiffFileTemp);
+		} else {
+			writeFile(tempFile, diff);
+		}
+
+		File patchFile = new File(master_slaveOrReplicaDiffFile);
+		if (patchFile.exists()) {
+			this.hasPatch = true;
+			try {
+				this.isSame = diff.equals(joinLines(readLines(master_slaveOrReplicaDiffFile)));
+			} catch (IOException e) {
+				this.isSame = false;
+			}
+			if (!this.isSame) {
+				// the patch may come from a diff tool which aligns the hunks differently
+				String result = LocalInvoker.exec("diff '" + masterFile + "' '" + slaveFile + "' > '" + master_slaveOrReplicaDiffFileTemp + "' 2>&1\n" + "diff '" + master_slaveOrReplicaDiffFile + "' '"
+						+ master_slaveOrReplicaDiffFileTemp + "' >/dev/null 2>&1 && echo PASS PATCH\n", CommonUtils.getShellType(false), false);
+				this.isSame = result.indexOf("PASS") != -1;
+			}
+		}
+		return isSame ? 0 : 1;
 	}
-	
+
 	public boolean isSame() {
 		return this.isSame;
 	}
-	
+
 	public boolean hasPatch() {
 		return this.hasPatch;
 	}
+
+	/**
+	 * the first line of master dump which differs, -1 if the dumps are the same.
+	 */
+	public int getFirstMismatchLine() {
+		return this.firstMismatchLine;
+	}
+
+	public int getHunkCount() {
+		return this.hunkCount;
+	}
+
+	public String getMismatchSummary() {
+		if (firstMismatchLine == -1) {
+			return "same";
+		}
+		return hunkCount + " different hunk(s), first at line " + firstMismatchLine;
+	}
+
+	/**
+	 * produce the same output as 'diff' in normal format. Return null if the
+	 * files are too different to be compared here.
+	 */
+	private String diff(ArrayList<String> a, ArrayList<String> b) {
+		int n = a.size();
+		int m = b.size();
+		int start = 0;
+		while (start < n && start < m && a.get(start).equals(b.get(start))) {
+			start++;
+		}
+		if (start == n && start == m) {
+			return "";
+		}
+
+		this.firstMismatchLine = start + 1;
+		int endA = n, endB = m;
+		while (endA > start && endB > start && a.get(endA - 1).equals(b.get(endB - 1))) {
+			endA--;
+			endB--;
+		}
+
+		boolean[] deleted = new boolean[n];
+		boolean[] inserted = new boolean[m];
+		if (!shortestEdit(a, b, start, endA, endB, deleted, inserted)) {
+			return null;
+		}
+
+		StringBuilder out = new StringBuilder();
+		int i = start, j = start;
+		while (i < endA || j < endB) {
+			if (i < endA && j < endB && !deleted[i] && !inserted[j]) {
+				i++;
+				j++;
+				continue;
+			}
+			int i0 = i, j0 = j;
+			while (i < endA && deleted[i]) {
+				i++;
+			}
+			while (j < endB && inserted[j]) {
+				j++;
+			}
+			hunkCount++;
+			if (i0 == i) {
+				out.append(i0).append('a').append(range(j0 + 1, j)).append('\n');
+			} else if (j0 == j) {
+				out.append(range(i0 + 1, i)).append('d').append(j0).append('\n');
+			} else {
+				out.append(range(i0 + 1, i)).append('c').append(range(j0 + 1, j)).append('\n');
+			}
+			for (int k = i0; k < i; k++) {
+				out.append("< ").append(a.get(k)).append('\n');
+			}
+			if (i0 != i && j0 != j) {
+				out.append("---\n");
+			}
+			for (int k = j0; k < j; k++) {
+				out.append("> ").append(b.get(k)).append('\n');
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Myers' O(ND) algorithm on a[start, endA) and b[start, endB). Mark the
+	 * lines which are not in the longest common subsequence.
+	 */
+	private static boolean shortestEdit(ArrayList<String> a, ArrayList<String> b, int start, int endA, int endB, boolean[] deleted, boolean[] inserted) {
+		int n = endA - start;
+		int m = endB - start;
+		int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+		int offset = max + 1;
+		int[] v = new int[2 * max + 3];
+		ArrayList<int[]> trace = new ArrayList<int[]>();
+
+		int d;
+		for (d = 0; d <= max; d++) {
+			int[] snapshot = new int[2 * d + 3];
+			System.arraycopy(v, offset - d - 1, snapshot, 0, snapshot.length);
+			trace.add(snapshot);
+
+			boolean found = false;
+			for (int k = -d; k <= d; k += 2) {
+				int x = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) ? v[offset + k + 1] : v[offset + k - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && a.get(start + x).equals(b.get(start + y))) {
+					x++;
+					y++;
+				}
+				v[offset + k] = x;
+				if (x >= n && y >= m) {
+					found = true;
+					break;
+				}
+			}
+			if (found) {
+				break;
+			}
+		}
+		if (d > max) {
+			return false;
+		}
+
+		int x = n, y = m;
+		for (; d > 0; d--) {
+			int[] snapshot = trace.get(d);
+			int k = x - y;
+			int prevK = (k == -d || (k != d && snapshot[k - 1 + d + 1] < snapshot[k + 1 + d + 1])) ? k + 1 : k - 1;
+			int prevX = snapshot[prevK + d + 1];
+			int prevY = prevX - prevK;
+			while (x > prevX && y > prevY) {
+				x--;
+				y--;
+			}
+			if (x == prevX) {
+				inserted[start + prevY] = true;
+			} else {
+				deleted[start + prevX] = true;
+			}
+			x = prevX;
+			y = prevY;
+		}
+		return true;
+	}
+
+	private static String range(int from, int to) {
+		return from == to ? String.valueOf(from) : from + "," + to;
+	}
+
+	private static ArrayList<String> readLines(String filename) throws IOException {
+		ArrayList<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), DUMP_CHARSET));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	private static String joinLines(ArrayList<String> lines) {
+		StringBuilder result = new StringBuilder();
+		for (String line : lines) {
+			result.append(line).append('\n');
+		}
+		return result.toString();
+	}
+
+	private static void writeFile(File file, String content) {
+		PrintWriter writer = null;
+		try {
+			writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), DUMP_CHARSET));
+			writer.print(content);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+	}
+
+	private static String execDiff(String masterFile, String slaveFile, String diffFile) {
+		LocalInvoker.exec("diff '" + masterFile + "' '" + slaveFile + "' > '" + diffFile + "' 2>&1\n", CommonUtils.getShellType(false), false);
+		try {
+			return joinLines(readLines(diffFile));
+		} catch (IOException e) {
+			return "";
+		}
+	}
 }
@@ -231,6 +231,15 @@ public class Context {
 		return testmode;
 	}
 
+	/**
+	 * checks and replication flags are read by csql (default) or by the jdbc
+	 * connections kept to every node. The brokers of slaves and replicas
+	 * should read their local standby (ACCESS_MODE=SO) for jdbc.
+	 */
+	public boolean isJdbcCheck() {
+		return getProperty(ConfigParameterConstants.HA_CHECK_INTERFACE_TYPE, "csql").trim().equalsIgnoreCase("jdbc");
+	}
+
 	public boolean rebuildYn() {
 		String rebuildEnv = getProperty(ConfigParameterConstants.TEST_REBUILD_ENV_YES_OR_NO, "true");
 		return CommonUtils.convertBoolean(rebuildEnv);
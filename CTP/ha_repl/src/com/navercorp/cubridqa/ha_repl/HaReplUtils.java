@@ -24,7 +24,16 @@
  */
 package com.navercorp.cubridqa.ha_repl;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -137,14 +146,17 @@ public class HaReplUtils {
 		}
 		s.append("cd ~;");
 
-		GeneralScriptInput script = new GeneralScriptInput(s.toString());
-		for (SSHConnect ssh : allHosts) {
-			if (context.getStartDBFailCount () > 0) {
-				backupLogs ("START_FAIL_", context, ssh, log);
+		final GeneralScriptInput cleanScript = new GeneralScriptInput(s.toString());
+		final Context ctx = context;
+		executeOnHosts(allHosts, log, new HostTask() {
+			public void execute(SSHConnect ssh, Log hostLog) throws Exception {
+				if (ctx.getStartDBFailCount () > 0) {
+					backupLogs ("START_FAIL_", ctx, ssh, hostLog);
+				}
+				ssh.execute(cleanScript);
+				hostLog.println("------------ CLEANUP DONE for host : " + ssh.getHost ());
 			}
-			ssh.execute(script);
-			log.println("------------ CLEANUP DONE for host : " + ssh.getHost ());
-		}
+		});
 
 		s = new StringBuffer();
 		s.append("cd ${CUBRID}/databases").append(";");
@@ -174,7 +186,7 @@ public class HaReplUtils {
 		s.append("cubrid broker start").append(";");
 		s.append("cd ~;");
 
-		script = new GeneralScriptInput(s.toString());
+		final GeneralScriptInput script = new GeneralScriptInput(s.toString());
 
 		SSHConnect master = hostManager.getHost("master");
 		master.setEnableDebug (enableDebug, log);
@@ -191,20 +203,34 @@ public class HaReplUtils {
 		if (!succ)
 			throw new Exception("timeout when wait 'to-be-active' or 'is active' in master");
 
-		ArrayList<SSHConnect> slaveAndReplicaList = hostManager.getAllSlaveAndReplicaList();
-		for (SSHConnect ssh : slaveAndReplicaList) {
-			log.println("------------ SLAVE/REPLICA : CREATE DATABASE -----------------");
-			ssh.setEnableDebug (enableDebug, log);
-			ssh.setTimeout (haCreatedbSSHFeedbackTimeout);
-			result = ssh.execute(script);
-			log.println(result);
-			System.out.println(result);
-			if (result.indexOf("fail") != -1) {
-				throw new Exception("fail to create on slave/replica.");
+		// all standbys are created and started together once master is to-be-active
+		final String testDb = hostManager.getTestDb();
+		final boolean debug = enableDebug;
+		final int createdbTimeout = haCreatedbSSHFeedbackTimeout;
+		final int waitdbTimeout = haWaitdbSSHFeedbackTimeout;
+		ArrayList<SSHConnect> standbyList = hostManager.getAllSlaveAndReplicaList();
+		try {
+			executeOnHosts(standbyList, log, new HostTask() {
+				public void execute(SSHConnect ssh, Log hostLog) throws Exception {
+					hostLog.println("------------ SLAVE/REPLICA : CREATE DATABASE (" + ssh.getHost() + ") -----------------");
+					ssh.setEnableDebug (debug, hostLog);
+					ssh.setTimeout (createdbTimeout);
+					String result = ssh.execute(script);
+					hostLog.println(result);
+					System.out.println(result);
+					if (result.indexOf("fail") != -1) {
+						throw new Exception("fail to create on slave/replica.");
+					}
+					boolean succ = waitDatabaseReady(ssh, testDb, "is standby", hostLog, MAX_TRY_WAIT_STATUS, debug, waitdbTimeout);
+					if (!succ)
+						throw new Exception("timeout when wait standby in slave/replica");
+				}
+			});
+		} finally {
+			// the host logs are closed now
+			for (SSHConnect ssh : standbyList) {
+				ssh.setEnableDebug (enableDebug, log);
 			}
-			succ = waitDatabaseReady(ssh, hostManager.getTestDb(), "is standby", log, MAX_TRY_WAIT_STATUS, enableDebug, haWaitdbSSHFeedbackTimeout);
-			if (!succ)
-				throw new Exception("timeout when wait standby in slave/replica");
 		}
 		log.println("------------ MASTER : WAIT ACTIVE -----------------");
 		succ = waitDatabaseReady(master, hostManager.getTestDb(), "is active", log, MAX_TRY_WAIT_STATUS, enableDebug, haWaitdbSSHFeedbackTimeout);
@@ -215,6 +241,81 @@ public class HaReplUtils {
 		log.println("REBUILD DONE");
 	}
 
+	/**
+	 * run the task on every host at the same time, and throw the first error
+	 * after all of them finish. Each host logs to its own file, which is
+	 * appended to the log in host order after the join.
+	 */
+	private static void executeOnHosts(ArrayList<SSHConnect> hosts, Log log, final HostTask task) throws Exception {
+		if (hosts.size() == 0) {
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(hosts.size());
+		ArrayList<Log> hostLogs = new ArrayList<Log>();
+		try {
+			ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (int i = 0; i < hosts.size(); i++) {
+				final SSHConnect ssh = hosts.get(i);
+				final Log hostLog = new Log(log.getFileName() + ".host" + i, false);
+				hostLogs.add(hostLog);
+				futures.add(pool.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						task.execute(ssh, hostLog);
+						return null;
+					}
+				}));
+			}
+
+			Exception error = null;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				} finally {
+					appendHostLog(log, hostLogs.get(i));
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void appendHostLog(Log log, Log hostLog) {
+		hostLog.close();
+		File file = new File(hostLog.getFileName());
+		StringBuffer content = new StringBuffer();
+		InputStreamReader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file));
+			char[] buf = new char[8192];
+			int len;
+			while ((len = reader.read(buf)) != -1) {
+				content.append(buf, 0, len);
+			}
+		} catch (IOException e) {
+			log.println("fail to read host log " + file + ": " + e.getMessage());
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		log.print(content.toString());
+		file.delete();
+	}
+
+	private interface HostTask {
+		void execute(SSHConnect ssh, Log hostLog) throws Exception;
+	}
+
 	private static boolean waitDatabaseReady(SSHConnect ssh, String dbName, String expectedStatus, Log log, int maxTry, boolean enableDebug, int ssh_feedback_timeout) throws Exception {
 		GeneralScriptInput script = new GeneralScriptInput("cd $CUBRID");
 		script.addCommand("cubrid changemode " + dbName);
@@ -243,6 +344,37 @@ public class HaReplUtils {
 		return false;
 	}
 
+	/**
+	 * split the sql text by ';' which is not quoted.
+	 */
+	public static ArrayList<String> splitStatements(String sqls) {
+		ArrayList<String> list = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		char quote = 0;
+		char c;
+		for (int i = 0; i < sqls.length(); i++) {
+			c = sqls.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == ';') {
+				if (sb.toString().trim().length() > 0) {
+					list.add(sb.toString().trim());
+				}
+				sb.setLength(0);
+				continue;
+			}
+			sb.append(c);
+		}
+		if (sb.toString().trim().length() > 0) {
+			list.add(sb.toString().trim());
+		}
+		return list;
+	}
+
 	public static ArrayList<String[]> extractTableToBeVerified(String input, String flag) {
 
 		ArrayList<String[]> list = new ArrayList<String[]>();
@@ -273,11 +273,10 @@ public class InstanceManager {
 	public void openJdbcConns() {
 		Connection conn;
 		for (String hostId : hostTable.keySet()) {
-			if(hostId.equals("master") == false) {
+			if (hostId.equals("master") == false && context.isJdbcCheck() == false) {
 				//tbd: remove in the future
 				continue;
 			}
-			//always be master
 			try {
 				conn = createJdbcConn(hostId);
 				this.jdbcConnMap.put(hostId, conn);
@@ -304,6 +303,26 @@ public class InstanceManager {
 		return affected;
 	}
 
+	public synchronized Connection getJdbcConn(String hostId) {
+		return this.jdbcConnMap.get(hostId);
+	}
+
+	/**
+	 * open the connection of the host again, e.g. after the server restarted.
+	 */
+	public synchronized Connection reopenJdbcConn(String hostId) throws SQLException {
+		Connection conn = this.jdbcConnMap.remove(hostId);
+		if (conn != null) {
+			try {
+				conn.close();
+			} catch (Exception e) {
+			}
+		}
+		conn = createJdbcConn(hostId);
+		this.jdbcConnMap.put(hostId, conn);
+		return conn;
+	}
+
 	public void resetJdbcConns() {
 		clearJdbcConns();
 		openJdbcConns();
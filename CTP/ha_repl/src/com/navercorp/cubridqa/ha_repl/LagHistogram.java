@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+
+package com.navercorp.cubridqa.ha_repl;
+
+/**
+ * count the observed replication lags of one test case by range.
+ */
+public class LagHistogram {
+
+	private final static long[] BOUNDS = { 10, 50, 100, 500, 1000, 5000 };
+
+	private long[] counts = new long[BOUNDS.length + 1];
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	public synchronized void add(long lag) {
+		int i = 0;
+		while (i < BOUNDS.length && lag >= BOUNDS[i]) {
+			i++;
+		}
+		counts[i]++;
+		count++;
+		total += lag;
+		if (lag > max) {
+			max = lag;
+		}
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+		}
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append(count).append(" waits, avg ").append(count == 0 ? 0 : total / count).append("ms, max ").append(max).append("ms");
+		for (int i = 0; i < counts.length; i++) {
+			sb.append(", ");
+			if (i < BOUNDS.length) {
+				sb.append("<").append(BOUNDS[i]);
+			} else {
+				sb.append(">=").append(BOUNDS[BOUNDS.length - 1]);
+			}
+			sb.append("ms: ").append(counts[i]);
+		}
+		return sb.toString();
+	}
+}
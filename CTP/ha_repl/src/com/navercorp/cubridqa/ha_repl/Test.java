@@ -34,7 +34,15 @@ import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map.Entry;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.navercorp.cubridqa.common.CaseHistory;
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.common.Log;
 import com.navercorp.cubridqa.ha_repl.common.Constants;
@@ -46,6 +54,8 @@ import com.navercorp.cubridqa.shell.common.SyncException;
 public class Test {
 	public final static int FAIL_MAX_STAT = 100;
 	public final static String SQL_UPDATE_STATS_CLASSES = "update statistics on catalog classes";
+	private final static long MIN_REPL_WAIT = 10;
+	private final static long MAX_REPL_WAIT = 1000;
 
 	InstanceManager hostManager;
 	Log mlog;
@@ -62,10 +72,18 @@ public class Test {
 	boolean testCompleted;
 	String currentTestFile;
 	Context context;
+	String envId;
+
+	ExecutorService standbyPool;
+	LagHistogram lagHistogram = new LagHistogram();
+	// recently observed replication lag, which seeds the first wait
+	long estimatedLag = 100;
 
 	public Test(Context context, String envId) throws Exception {
 		this.context = context;
+		this.envId = envId;
 		this.hostManager = new InstanceManager(context, envId);
+		this.standbyPool = Executors.newFixedThreadPool(Math.max(1, hostManager.getAllSlaveAndReplicaList().size()));
 
 		this.mlog = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "test_" + envId + ".log"), false, context.isContinueMode());
 		this.mlog.setUseTimestamp (true);
@@ -92,7 +110,7 @@ public class Test {
 		String filename;
 
 		while (true) {
-			filename = dispatch.nextTestFile();
+			filename = dispatch.nextTestFile(envId);
 			this.hostManager.refreshConnection();
 			if (filename == null) {
 				context.getFeedback().onStopEnvEvent(hostManager, mlog);
@@ -164,6 +182,7 @@ public class Test {
 		this.finishedLog.close();
 		this.mlog.close();
 		this.hostManager.close();
+		this.standbyPool.shutdownNow();
 		System.out.println(" ++ Test.close done");
 	}
 
@@ -189,6 +208,7 @@ public class Test {
 		testCount = 0;
 		checkCount = 0;
 		fail100List.clear();
+		lagHistogram.clear();
 		this.hasCore = false;
 		this.userInfo = new StringBuffer();
 
@@ -327,6 +347,8 @@ public class Test {
 		log("");
 		log("");
 		log("Summary: " + failCount + " failure, " + (testCount + checkCount) + " statements, " + checkCount + " tests");
+		log("Replication lag: " + lagHistogram);
+		mlog.println("Replication lag: " + lagHistogram);
 		log("");
 		log("");
 
@@ -340,6 +362,7 @@ public class Test {
 
 		context.getFeedback().onTestCaseStopEvent(currentTestFile, testcasePassed, endTime - startTime, userInfo.toString(), hostManager.getEnvId(), false, hasCore,
 				Constants.SKIP_TYPE_NO);
+		CaseHistory.getInstance("ha_repl").add(currentTestFile, context.getBuildId(), endTime - startTime);
 		
 		System.out.println("[TESTCASE] " + currentTestFile + " " + (endTime - startTime) + "ms " + hostManager.getEnvId() + " " + "[" + resultType + "]");
 		if (hasCore) {
@@ -404,7 +427,7 @@ public class Test {
 		return sameData;
 	}
 
-	private boolean verifyResults(String logFilename, boolean backupYn) {
+	private boolean verifyResults(final String logFilename, boolean backupYn) {
 		
 		ArrayList<String> failures = checkCoresAndErrors(backupYn, false);
 		if (failures != null && failures.size() > 0) {
@@ -417,14 +440,36 @@ public class Test {
 
 		boolean withPatch = true;
 		try {
+			// diff all standbys at the same time, then judge them in order
+			ArrayList<CheckDiff> checkDiffs = new ArrayList<CheckDiff>();
+			ArrayList<String> nodes = new ArrayList<String>();
+			ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
 			Iterator logHashTableIterator = this.logHashTable.entrySet().iterator();
 			while (logHashTableIterator.hasNext()) {
 				Entry entry = (Entry) logHashTableIterator.next();
-				CheckDiff checkDiff = new CheckDiff();
-				if (checkDiff.check(logFilename, "master", (String) entry.getKey(), context.getDiffMode()) != 0) {
+				final CheckDiff checkDiff = new CheckDiff();
+				final String slaveOrReplica = (String) entry.getKey();
+				checkDiffs.add(checkDiff);
+				nodes.add(slaveOrReplica);
+				futures.add(standbyPool.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						return checkDiff.check(logFilename, "master", slaveOrReplica, context.getDiffMode());
+					}
+				}));
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				int diff;
+				try {
+					diff = futures.get(i).get();
+				} catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+				if (diff != 0) {
+					this.addFail("[DIFF] " + nodes.get(i) + ": " + checkDiffs.get(i).getMismatchSummary());
 					return false;
 				}
-				if (!checkDiff.hasPatch()) {
+				if (!checkDiffs.get(i).hasPatch()) {
 					withPatch = false;
 				}
 			}
@@ -823,7 +868,6 @@ public class Test {
 	}
 
 	private ArrayList<String> executeOnSlaveAndReplica(boolean isSQL, boolean isCMD, String stmt, boolean isTest) throws Exception {
-		ArrayList<String> resultList = new ArrayList<String>();
 		String result = null;
 		SSHConnect masterSsh = hostManager.getHost("master");
 		String spt = "cd $CUBRID;";
@@ -833,7 +877,12 @@ public class Test {
 		long expectedFlagId = -1;
 		if (isSQL && !isTest) {
 			try {
-				result = masterSsh.execute(script);
+				if (context.isJdbcCheck()) {
+					Matcher m = Pattern.compile("EXPECT-(\\d+)").matcher(executeCheckOnJdbc(masterSsh.getTitle(), "select 'EXP' ||'ECT-'|| v from qa_system_tb_flag"));
+					result = m.find() ? m.group(1) : "";
+				} else {
+					result = masterSsh.execute(script);
+				}
 				result = CommonUtils.replace(result, "'", "");
 				result = CommonUtils.replace(result, "EXPECT-", "").trim();
 				expectedFlagId = Long.parseLong(result);
@@ -845,22 +894,74 @@ public class Test {
 		}
 
 		ArrayList<SSHConnect> slaveAndReplicaList = hostManager.getAllSlaveAndReplicaList();
-		for (SSHConnect ssh : slaveAndReplicaList) {
-			if (isSQL && !isTest) {
-				waitDataReplicated(ssh, expectedFlagId);
+		return executeOnStandbys(slaveAndReplicaList, isSQL, isCMD, stmt, isTest, isSQL && !isTest ? expectedFlagId : -1);
+	}
+
+	/**
+	 * execute on all standbys at the same time. Each standby waits until the
+	 * flag is replicated (if expectedFlagId is not -1) and runs the statement
+	 * at once. The results are returned in the order of the standbys.
+	 */
+	private ArrayList<String> executeOnStandbys(ArrayList<SSHConnect> standbyList, final boolean isSQL, final boolean isCMD, final String stmt, final boolean isTest,
+			final long expectedFlagId) throws Exception {
+		final long startTime = System.currentTimeMillis();
+		final long firstWait = Math.max(MIN_REPL_WAIT, Math.min(estimatedLag / 2, MAX_REPL_WAIT));
+		final long[] lags = new long[standbyList.size()];
+
+		ArrayList<Future<String>> futures = new ArrayList<Future<String>>();
+		ArrayList<StringBuffer> logs = new ArrayList<StringBuffer>();
+		for (int i = 0; i < standbyList.size(); i++) {
+			final int index = i;
+			final SSHConnect ssh = standbyList.get(i);
+			final StringBuffer log = new StringBuffer();
+			logs.add(log);
+			lags[i] = -1;
+			futures.add(standbyPool.submit(new Callable<String>() {
+				public String call() throws Exception {
+					if (expectedFlagId != -1) {
+						lags[index] = waitDataReplicated(ssh, expectedFlagId, startTime, firstWait, log);
+					}
+					return executeScript(ssh, isSQL, isCMD, stmt, isTest);
+				}
+			}));
+		}
+
+		ArrayList<String> resultList = new ArrayList<String>();
+		Exception error = null;
+		long maxLag = -1;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				resultList.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				// the sync failure stops the test case, so it goes first
+				if (error == null || cause instanceof SyncException) {
+					error = cause;
+				}
+			} finally {
+				mlog.print(logs.get(i).toString());
 			}
-			result = executeScript(ssh, isSQL, isCMD, stmt, isTest);
+			if (lags[i] >= 0) {
+				lagHistogram.add(lags[i]);
+				maxLag = Math.max(maxLag, lags[i]);
+			}
+		}
 
-			resultList.add(result);
+		if (maxLag >= 0) {
+			estimatedLag = (estimatedLag * 3 + maxLag) / 4;
+		}
+		if (error != null) {
+			throw error;
 		}
 		return resultList;
 	}
-	
 
 	private String executeScript(SSHConnect ssh, boolean isSQL, boolean isCMD, String stmt, boolean isTest) throws Exception {
 
 		String result = null;
-		if (isSQL) {
+		if (isSQL && !isTest && context.isJdbcCheck()) {
+			result = executeCheckOnJdbc(ssh.getTitle(), stmt);
+		} else if (isSQL) {
 			String script = "cd $CUBRID" + Constants.LINE_SEPARATOR;
 			script += "csql -u dba " + hostManager.getTestDb() + " 2>&1 << EOF" + Constants.LINE_SEPARATOR;
 			script += ";time off" + Constants.LINE_SEPARATOR;
@@ -879,6 +980,83 @@ public class Test {
 		return result;
 	}
 
+	/**
+	 * execute the check on the jdbc connection kept to the host. The master
+	 * and the slaves print the result in the same way, so their dumps can be
+	 * compared.
+	 */
+	private String executeCheckOnJdbc(String hostId, String sqls) throws Exception {
+		Connection conn = hostManager.getJdbcConn(hostId);
+		if (conn == null) {
+			conn = hostManager.reopenJdbcConn(hostId);
+		}
+
+		StringBuffer result = new StringBuffer();
+		for (String sql : HaReplUtils.splitStatements(sqls)) {
+			try {
+				result.append(executeAndFormat(conn, sql));
+			} catch (SQLException e) {
+				if (isJdbcConnAlive(conn)) {
+					result.append("ERROR: ").append(e.getMessage()).append(Constants.LINE_SEPARATOR);
+				} else {
+					mlog.println("reopen jdbc connection of " + hostId + " (" + e.getMessage() + ")");
+					conn = hostManager.reopenJdbcConn(hostId);
+					result.append(executeAndFormat(conn, sql));
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	private static String executeAndFormat(Connection conn, String sql) throws SQLException {
+		StringBuffer res = new StringBuffer();
+		Statement stmt = conn.createStatement();
+		try {
+			if (stmt.execute(sql)) {
+				ResultSet rs = stmt.getResultSet();
+				ResultSetMetaData rsmd = rs.getMetaData();
+				int numberofColumn = rsmd.getColumnCount();
+				for (int c = 1; c <= numberofColumn; c++) {
+					res.append(rsmd.getColumnName(c)).append(c < numberofColumn ? "\t" : Constants.LINE_SEPARATOR);
+				}
+				int rows = 0;
+				while (rs.next()) {
+					for (int j = 1; j <= numberofColumn; j++) {
+						// the oid differs on each node
+						if ("class".equalsIgnoreCase(rsmd.getColumnTypeName(j))) {
+							res.append(rsmd.getColumnName(j));
+						} else {
+							res.append(rs.getString(j));
+						}
+						res.append(j < numberofColumn ? "\t" : Constants.LINE_SEPARATOR);
+					}
+					rows++;
+				}
+				rs.close();
+				res.append(rows).append(" rows selected.").append(Constants.LINE_SEPARATOR);
+			} else {
+				res.append(stmt.getUpdateCount()).append(" rows affected.").append(Constants.LINE_SEPARATOR);
+			}
+		} finally {
+			stmt.close();
+		}
+		return res.toString();
+	}
+
+	private static boolean isJdbcConnAlive(Connection conn) {
+		try {
+			Statement stmt = conn.createStatement();
+			try {
+				stmt.executeQuery("select 1 from db_root").close();
+			} finally {
+				stmt.close();
+			}
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
 	private boolean isFinalDatabaseDirty() {
 		boolean result;
 		int loop = 1;
@@ -969,36 +1147,37 @@ public class Test {
 		mlog.println("DONE");
 	}
 
-	private boolean waitDataReplicated(SSHConnect ssh, long expectedFlagId) throws Exception {
+	private long waitDataReplicated(SSHConnect ssh, long expectedFlagId, long startTime, long firstWait, StringBuffer log) throws Exception {
 		String spt = "cd $CUBRID;";
 		spt += "csql -u dba " + hostManager.getTestDb() + " -c \"select 'GO'||'OD-'||v FROM QA_SYSTEM_TB_FLAG \" | grep GOOD";
 		GeneralScriptInput script = new GeneralScriptInput(spt);
 		String result;
 		int index = 1;
-
-		long start_time = System.currentTimeMillis();
-		long end_time;
+		long wait = firstWait;
 
 		while (true) {
-			result = ssh.execute(script).trim();
-			mlog.print("  (" + (index++) + ") Wait data replicated ... ");
+			if (context.isJdbcCheck()) {
+				result = executeCheckOnJdbc(ssh.getTitle(), "select 'GO'||'OD-'||v FROM QA_SYSTEM_TB_FLAG").trim();
+			} else {
+				result = ssh.execute(script).trim();
+			}
+			log.append("  (" + (index++) + ") Wait data replicated on " + ssh.getTitle() + " ... ");
 			if (result.indexOf("GOOD-" + expectedFlagId) != -1) {
-				mlog.println(" GOT (" + calcTimeInterval(start_time) + ", " + expectedFlagId + ", " + result + ")");
-				break;
+				long lag = System.currentTimeMillis() - startTime;
+				log.append(" GOT (" + lag + " ms, " + expectedFlagId + ", " + result + ")").append(Constants.LINE_SEPARATOR);
+				return lag;
 			} else {
-				mlog.println(" FAIL (" + calcTimeInterval(start_time) + ", " + expectedFlagId + ", " + result + ")");
+				log.append(" FAIL (" + calcTimeInterval(startTime) + ", " + expectedFlagId + ", " + result + ")").append(Constants.LINE_SEPARATOR);
 			}
 
-			end_time = System.currentTimeMillis();
-			if ((end_time - start_time) > context.getHaSyncDetectTimeoutInMs()) {
-				mlog.println(" SYNC TIMEOUT (" + calcTimeInterval(start_time) + ")");
+			if ((System.currentTimeMillis() - startTime) > context.getHaSyncDetectTimeoutInMs()) {
+				log.append(" SYNC TIMEOUT (" + calcTimeInterval(startTime) + ")").append(Constants.LINE_SEPARATOR);
 				throw new SyncException();
 			}
 
-			Thread.sleep(100 + index * 10);
+			Thread.sleep(wait);
+			wait = Math.min(wait * 2, MAX_REPL_WAIT);
 		}
-
-		return true;
 	}
 
 	private void masterDumpLog(String info) {
@@ -29,6 +29,8 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import com.navercorp.cubridqa.common.CaseHistory;
+import com.navercorp.cubridqa.common.CaseScheduler;
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.common.Log;
 import com.navercorp.cubridqa.ha_repl.Context;
@@ -46,7 +48,7 @@ public class Dispatch {
 	ArrayList<String> tbdList;
 	int tbdSize;
 
-	int nextTestFileIndex;
+	CaseScheduler scheduler;
 	Log all;
 
 	private ArrayList<String> macroSkippedList;
@@ -63,7 +65,6 @@ public class Dispatch {
 
 		this.tbdList = new ArrayList<String>();
 		this.tbdSize = 0;
-		this.nextTestFileIndex = -1;
 
 		load();
 	}
@@ -76,16 +77,8 @@ public class Dispatch {
 		return instance;
 	}
 
-	public synchronized String nextTestFile() {
-		if (tbdSize == 0 || this.nextTestFileIndex >= tbdSize) {
-			return null;
-		}
-		if (this.nextTestFileIndex < 0) {
-			this.nextTestFileIndex = 0;
-		}
-		String nextTestFile = tbdList.get(this.nextTestFileIndex);
-		this.nextTestFileIndex++;
-		return nextTestFile;
+	public synchronized String nextTestFile(String envId) {
+		return scheduler.next(envId);
 	}
 
 	private void load() throws Exception {
@@ -128,7 +121,7 @@ public class Dispatch {
 			}
 			this.all.close();
 		}
-		this.nextTestFileIndex = -1;
+		this.scheduler = new CaseScheduler(tbdList, CaseHistory.getInstance("ha_repl").getMedians(tbdList), envList);
 		this.tbdSize = this.tbdList.size();
 	}
 
@@ -31,6 +31,7 @@ import java.util.Properties;
 
 import com.jcraft.jsch.JSchException;
 import com.navercorp.cubridqa.isolation.dispatch.Dispatch;
+import com.navercorp.cubridqa.common.CaseHistory;
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.common.ConfigParameterConstants;
 import com.navercorp.cubridqa.common.Log;
@@ -84,7 +85,7 @@ public class Test {
 		Long endTime;
 		int p;
 		while (!shouldStop && !Dispatch.getInstance().isFinished()) {
-			testCase = Dispatch.getInstance().nextTestFile();
+			testCase = Dispatch.getInstance().nextTestFile(currEnvId);
 			if (testCase == null) {
 				break;
 			}
@@ -132,6 +133,7 @@ public class Test {
 					resultCont.append(cont).append(Constants.LINE_SEPARATOR);
 				}
 				context.getFeedback().onTestCaseStopEvent(this.testCaseFullName, testCaseSuccess, endTime - startTime, resultCont.toString(), envIdentify, isTimeOut, hasCore, Constants.SKIP_TYPE_NO);
+				CaseHistory.getInstance("isolation").add(this.testCaseFullName, context.getBuildId(), endTime - startTime);
 				System.out.println("[TESTCASE] " + this.testCaseFullName + " EnvId=" + this.currEnvId + " " + (testCaseSuccess ? "[OK]" : "[NOK]"));
 				workerLog.println("");
 				dispatchLog.println(this.testCaseFullName);
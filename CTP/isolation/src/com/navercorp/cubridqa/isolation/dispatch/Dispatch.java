@@ -33,6 +33,8 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
 
+import com.navercorp.cubridqa.common.CaseHistory;
+import com.navercorp.cubridqa.common.CaseScheduler;
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.common.Log;
 import com.navercorp.cubridqa.isolation.Constants;
@@ -50,7 +52,7 @@ public class Dispatch {
 	private ArrayList<String> tbdList;
 	private int totalTbdSize;
 
-	private int nextTestFileIndex;
+	private CaseScheduler scheduler;
 	private Log all;
 
 	private boolean isFinished;
@@ -66,7 +68,6 @@ public class Dispatch {
 		this.tbdList = new ArrayList<String>();
 		this.totalTbdSize = 0;
 		this.isFinished = false;
-		this.nextTestFileIndex = -1;
 		load();
 	}
 
@@ -78,20 +79,15 @@ public class Dispatch {
 		return instance;
 	}
 
-	public synchronized String nextTestFile() {
+	public synchronized String nextTestFile(String envId) {
 
 		if (isFinished)
 			return null;
 
-		if (totalTbdSize == 0 || this.nextTestFileIndex >= totalTbdSize) {
+		String nextTestFile = scheduler.next(envId);
+		if (nextTestFile == null) {
 			isFinished = true;
-			return null;
-		}
-		if (this.nextTestFileIndex < 0) {
-			this.nextTestFileIndex = 0;
 		}
-		String nextTestFile = tbdList.get(this.nextTestFileIndex);
-		this.nextTestFileIndex++;
 		return nextTestFile;
 	}
 
@@ -146,7 +142,7 @@ public class Dispatch {
 			}
 			this.all.close();
 		}
-		this.nextTestFileIndex = -1;
+		this.scheduler = new CaseScheduler(tbdList, CaseHistory.getInstance("isolation").getMedians(tbdList), context.getEnvList());
 		this.totalTbdSize = this.tbdList.size();
 		if (this.totalTbdSize == 0) {
 			this.isFinished = true;
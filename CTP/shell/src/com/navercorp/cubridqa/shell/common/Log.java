@@ -29,7 +29,9 @@ package com.navercorp.cubridqa.shell.common;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
 
 public class Log {
 
@@ -40,11 +42,23 @@ public class Log {
 
 	boolean echo = false;
 
+	boolean compress = false;
+
 	public Log(String fileName, boolean echo) {
 		this(fileName, echo, false);
 	}
 
 	public Log(String fileName, boolean echo, boolean append) {
+		this(fileName, echo, append, false);
+	}
+
+	/**
+	 * @param compress
+	 *            write the log as gzip. Every block ended by finishBlock() is a
+	 *            complete gzip member, so the file can be read by zcat while it
+	 *            is still written.
+	 */
+	public Log(String fileName, boolean echo, boolean append, boolean compress) {
 
 		this.echo = echo;
 		this.fileName = fileName;
@@ -68,7 +82,12 @@ public class Log {
 		}
 
 		try {
-			pw = new PrintWriter(new FileOutputStream(file, append), true);
+			this.compress = compress;
+			if (compress) {
+				pw = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file, append))));
+			} else {
+				pw = new PrintWriter(new FileOutputStream(file, append), true);
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -107,6 +126,21 @@ public class Log {
 		}
 	}
 
+	/**
+	 * end the current gzip member of a compressed log.
+	 */
+	public synchronized void finishBlock() {
+		if (!compress) {
+			return;
+		}
+		try {
+			pw.close();
+			pw = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(filePath, true))));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public String getFileName() {
 		return this.fileName;
 	}
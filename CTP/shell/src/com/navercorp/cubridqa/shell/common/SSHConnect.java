@@ -26,16 +26,15 @@
 
 package com.navercorp.cubridqa.shell.common;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.rmi.Naming;
-import java.util.Properties;
 
 import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 import com.navercorp.cubridqa.shell.service.ShellService;
+import com.navercorp.cubridqa.common.ChannelOutputReader;
+import com.navercorp.cubridqa.common.ChannelOutputReader.OutputConsumer;
 import com.navercorp.cubridqa.common.Log;
 
 public class SSHConnect {
@@ -44,8 +43,6 @@ public class SSHConnect {
 	public final static String SERVICE_TYPE_RMI = "rmi";
 	public final static String SERVICE_TYPE_LOCAL = "local";
 
-	private Session session;
-
 	String host;
 	int port;
 	String user;
@@ -57,8 +54,6 @@ public class SSHConnect {
 	
 	long outputTimeout;
 
-	final int MAX_TRY_TIME = 10;
-
 	public SSHConnect() throws JSchException {
 		this(null, -1, null, null, SERVICE_TYPE_LOCAL);
 	}
@@ -94,24 +89,6 @@ public class SSHConnect {
 		return result;
 	}
 
-	private void reconnect() throws JSchException {
-		int count = 0;
-		while (true) {
-			JSch jsch = new JSch();
-			this.session = jsch.getSession(user, host, port);
-			this.session.setPassword(pwd);
-			Properties config = new Properties();
-			config.setProperty("StrictHostKeyChecking", "no");
-			session.setConfig("PreferredAuthentications", "password,publickey,keyboard-interactive,");
-			this.session.setConfig(config);
-			this.session.connect();
-			if ((session != null && session.isConnected()) || count > MAX_TRY_TIME) {
-				break;
-			}
-			count++;
-		}
-	}
-
 	public String execute(ScriptInput scripts) throws Exception {
 		return execute(scripts.getCommands(), scripts.isPureWindows);
 	}
@@ -121,109 +98,88 @@ public class SSHConnect {
 	}
 
 	public String execute(String scripts, boolean pureWindows) throws Exception {
+		return execute(scripts, pureWindows, null);
+	}
+
+	/**
+	 * execute the scripts and give the output to the consumer while it is
+	 * read.
+	 * 
+	 * @return empty if the consumer is not null.
+	 */
+	public String execute(ScriptInput scripts, OutputConsumer consumer) throws Exception {
+		return execute(scripts.getCommands(), scripts.isPureWindows, consumer);
+	}
+
+	public String execute(String scripts, boolean pureWindows, OutputConsumer consumer) throws Exception {
 		if (mlog != null) {
 			mlog.println("     ++++SSHConnect: execute enableDebug:" + enableDebug);
 		}
 		if (serviceProtocol.equals(SERVICE_TYPE_RMI)) {
-			ShellService srv = null;
-			String url = "rmi://" + host + ":" + port + "/shellService";
-			while (true) {
-				try {
-					srv = (ShellService) Naming.lookup(url);
-					break;
-				} catch (Exception e) {
-					System.out.println("RMI FAIL: " + url);
-					CommonUtils.sleep(1);
-					continue;
-				}
-			}
-			return srv.exec(user, pwd, scripts, pureWindows);
+			return consume(getShellService().exec(user, pwd, scripts, pureWindows), consumer);
 		} else if (serviceProtocol.equals(SERVICE_TYPE_LOCAL)) {
 			String raw = LocalInvoker.exec(scripts, pureWindows, false);
-			return extractOutput(raw);
+			return consume(extractOutput(raw), consumer);
 		}
 
-		if (session == null || !session.isConnected())
-			reconnect();
-
-		ChannelExec exec = (ChannelExec) session.openChannel("exec");
-
-		InputStream in = exec.getInputStream();
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-		byte[] b = new byte[1024];
-
-		exec.setCommand(scripts);
 		if (this.enableDebug && mlog != null) {
 			mlog.println ("     ++++++++ SSHConnect timeout : " + outputTimeout + " , scripts: \n" + scripts);
-		}		
-		exec.connect();
+		}
 
-		int len = 0;
-		int available = 0;
-		boolean isTimeout = false;
-		
+		SSHSessionPool.PooledSession pooledSession = SSHSessionPool.acquire(host, port, user, pwd);
+		ChannelExec exec;
+		InputStream in;
+		int tryCount = 0;
 		while (true) {
-			
-			long startTime = System.currentTimeMillis();
-			boolean stop = false;
-
-			while ((available = in.available ()) == 0) {
-				if (System.currentTimeMillis () - startTime > outputTimeout) {
-					if (this.enableDebug && mlog != null) {
-						mlog.println ("     ++++SSHConnect: ChannelExec timeout !");
-					}
-					stop = true;
-					isTimeout = true;
-					break;
-				}
-				if (exec.isClosed ()) {
-					if (this.enableDebug && mlog != null) {
-						mlog.println ("     ++++SSHConnect: ChannelExec closed !");
-					}
-					stop = true;
-					break;
-				}
-				Thread.sleep(50);
-			}
-			if (stop) {
+			exec = null;
+			try {
+				exec = (ChannelExec) pooledSession.getSession().openChannel("exec");
+				exec.setCommand(scripts);
+				in = exec.getInputStream();
+				exec.connect();
 				break;
-			}
-			len = in.read(b);
-			
-			if (len <= 0)
-			{
-				if (this.enableDebug && mlog != null) {
-					mlog.println ("     ++++SSHConnect: read len =" + len);
+			} catch (Exception e) {
+				if (exec != null) {
+					exec.disconnect();
 				}
-				break;
-			}
-			if (this.enableDebug && mlog != null) {
-				String byteString = new String (b);
-				mlog.println ("     ++++SSHConnect: available bytes: " + available + " read :" + len);
-				mlog.println ("     ++++++++ SSHConnect: Content :\n" + byteString);
-			}
-			out.write(b, 0, len);
-			if (out.toString().indexOf(ScriptInput.COMP_FLAG) > 0) {
-				break;
+				SSHSessionPool.release(pooledSession, true);
+				if (tryCount++ > 0) {
+					throw e;
+				}
+				// the pooled session may be closed by peer, so try a new one
+				pooledSession = SSHSessionPool.acquire(host, port, user, pwd);
 			}
-			
-			if (exec.isClosed ()) {
+		}
+
+		try {
+			return readOutput(exec, in, consumer);
+		} finally {
+			exec.disconnect();
+			SSHSessionPool.release(pooledSession, false);
+		}
+	}
+
+	private String readOutput(ChannelExec exec, InputStream in, OutputConsumer consumer) throws Exception {
+		ChannelOutputReader reader = new ChannelOutputReader(ScriptInput.START_FLAG, ScriptInput.COMP_FLAG, consumer);
+		try {
+			return reader.read(in, exec, outputTimeout);
+		} catch (IOException e) {
+			if (reader.isTimeout()) {
 				if (this.enableDebug && mlog != null) {
-					mlog.println ("     ++++SSHConnect: ChannelExec closed !");
+					mlog.println ("     ++++SSHConnect: ChannelExec timeout !");
 				}
-				break;
+				throw new Exception("SSHConnect: ChannelExec timeout");
 			}
-			
+			throw e;
 		}
+	}
 
-		exec.disconnect();
-		
-		if (isTimeout) {
-			throw new Exception("SSHConnect: ChannelExec timeout");
+	private static String consume(String output, OutputConsumer consumer) {
+		if (consumer == null) {
+			return output;
 		}
-
-		return extractOutput(out.toString());
+		consumer.onOutput(output);
+		return "";
 	}
 
 	private static String extractOutput(String raw) {
@@ -245,6 +201,25 @@ public class SSHConnect {
 
 	}
 
+	/**
+	 * get the remote agent. It waits until the agent is found.
+	 */
+	public ShellService getShellService() {
+		String url = "rmi://" + host + ":" + port + "/shellService";
+		while (true) {
+			try {
+				return (ShellService) Naming.lookup(url);
+			} catch (Exception e) {
+				System.out.println("RMI FAIL: " + url);
+				CommonUtils.sleep(1);
+			}
+		}
+	}
+
+	public boolean isRemoteAgent() {
+		return SERVICE_TYPE_RMI.equals(serviceProtocol);
+	}
+
 	public void restartRemoteAgent() throws Exception {
 		try {
 			execute("PLEASE_RESTART_AGENT");
@@ -301,15 +276,11 @@ public class SSHConnect {
 		wait(scripts, kw);
 	}
 
+	/**
+	 * the SSH session is kept in SSHSessionPool for other connections of the
+	 * same host and user. Use SSHSessionPool.closeAll() to disconnect it.
+	 */
 	public void close() {
-		if (session != null) {
-			try {
-				session.disconnect();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			session = null;
-		}
 	}
 
 	public void setTitle(String title) {
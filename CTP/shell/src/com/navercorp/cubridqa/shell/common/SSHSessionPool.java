@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+
+package com.navercorp.cubridqa.shell.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Keep authenticated SSH sessions alive and share them between SSHConnect
+ * instances of the same host and user. Each command runs in its own exec
+ * channel, so a session is only created again when it is broken.
+ */
+public class SSHSessionPool {
+
+	public final static int MAX_CHANNELS_PER_SESSION = 8;
+
+	public final static int SERVER_ALIVE_INTERVAL = 60 * 1000;
+
+	final static int MAX_TRY_TIME = 10;
+
+	private static Map<String, List<PooledSession>> pool = new HashMap<String, List<PooledSession>>();
+
+	/**
+	 * get a connected session which has free channels, create a new one if
+	 * none.
+	 */
+	public static PooledSession acquire(String host, int port, String user, String pwd) throws JSchException {
+		String key = user + "@" + host + ":" + port + ":" + pwd;
+		synchronized (SSHSessionPool.class) {
+			List<PooledSession> list = pool.get(key);
+			if (list == null) {
+				list = new ArrayList<PooledSession>();
+				pool.put(key, list);
+			}
+			Iterator<PooledSession> it = list.iterator();
+			while (it.hasNext()) {
+				PooledSession s = it.next();
+				if (!s.session.isConnected()) {
+					if (s.channels == 0) {
+						it.remove();
+					}
+					continue;
+				}
+				if (s.channels < MAX_CHANNELS_PER_SESSION) {
+					s.channels++;
+					return s;
+				}
+			}
+		}
+
+		PooledSession s = new PooledSession(key, connect(host, port, user, pwd));
+		s.channels++;
+		synchronized (SSHSessionPool.class) {
+			List<PooledSession> list = pool.get(key);
+			if (list == null) {
+				list = new ArrayList<PooledSession>();
+				pool.put(key, list);
+			}
+			list.add(s);
+		}
+		return s;
+	}
+
+	/**
+	 * give back the session after its channel is closed.
+	 * 
+	 * @param s
+	 * @param broken
+	 *            the session can not be used any more.
+	 */
+	public static void release(PooledSession s, boolean broken) {
+		boolean disconnect;
+		synchronized (SSHSessionPool.class) {
+			s.channels--;
+			if (broken || !s.pooled) {
+				List<PooledSession> list = pool.get(s.key);
+				if (list != null) {
+					list.remove(s);
+				}
+				s.pooled = false;
+			}
+			disconnect = !s.pooled && s.channels == 0;
+		}
+		if (disconnect) {
+			s.session.disconnect();
+		}
+	}
+
+	/**
+	 * disconnect all idle sessions. The sessions in use are disconnected when
+	 * they are released.
+	 */
+	public static void closeAll() {
+		List<PooledSession> idleList = new ArrayList<PooledSession>();
+		synchronized (SSHSessionPool.class) {
+			for (List<PooledSession> list : pool.values()) {
+				for (PooledSession s : list) {
+					s.pooled = false;
+					if (s.channels == 0) {
+						idleList.add(s);
+					}
+				}
+			}
+			pool.clear();
+		}
+		for (PooledSession s : idleList) {
+			s.session.disconnect();
+		}
+	}
+
+	private static Session connect(String host, int port, String user, String pwd) throws JSchException {
+		int count = 0;
+		while (true) {
+			JSch jsch = new JSch();
+			Session session = jsch.getSession(user, host, port);
+			session.setPassword(pwd);
+			Properties config = new Properties();
+			config.setProperty("StrictHostKeyChecking", "no");
+			session.setConfig("PreferredAuthentications", "password,publickey,keyboard-interactive,");
+			session.setConfig(config);
+			session.setServerAliveInterval(SERVER_ALIVE_INTERVAL);
+			session.connect();
+			if (session.isConnected() || count > MAX_TRY_TIME) {
+				return session;
+			}
+			count++;
+		}
+	}
+
+	public static class PooledSession {
+		private String key;
+		private Session session;
+		private int channels = 0;
+		private boolean pooled = true;
+
+		PooledSession(String key, Session session) {
+			this.key = key;
+			this.session = session;
+		}
+
+		public Session getSession() {
+			return session;
+		}
+	}
+}
@@ -64,6 +64,10 @@ public class ScriptInput {
 		cmds.append(cmd).append(isPureWindows ? LINE_SEPARATOR_WIN : LINE_SEPARATOR);
 	}
 
+	public void addScript(ScriptInput script) {
+		cmds.append(script.cmds);
+	}
+
 	public String getCommands() {
 		if (isPureWindows) {
 			return "echo " + START_FLAG_MOCK_WIN + LINE_SEPARATOR_WIN + cmds.toString() + "@ECHO OFF" + LINE_SEPARATOR_WIN + "echo " + COMP_FLAG_MOCK_WIN + LINE_SEPARATOR_WIN;
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+
+package com.navercorp.cubridqa.shell.common;
+
+import java.util.LinkedHashMap;
+
+/**
+ * split the output of one script into named sections, so that several
+ * phases can be run in one call.
+ */
+public class ScriptSections {
+
+	private final static String SECTION_PREFIX = "CTP_SECTION[";
+	private final static String SECTION_SUFFIX = "]";
+
+	/**
+	 * get the command which starts a new section in the output.
+	 */
+	public static String getSectionCommand(String name) {
+		return "echo \"" + SECTION_PREFIX + name + SECTION_SUFFIX + "\"";
+	}
+
+	/**
+	 * parse the output by section name. The output before the first section
+	 * is kept with the empty name.
+	 */
+	public static LinkedHashMap<String, String> parse(String output) {
+		LinkedHashMap<String, String> sections = new LinkedHashMap<String, String>();
+		if (output == null) {
+			return sections;
+		}
+
+		String name = "";
+		StringBuilder cont = new StringBuilder();
+		String[] lines = output.split("\n");
+		for (String line : lines) {
+			String s = line.trim();
+			if (s.startsWith(SECTION_PREFIX) && s.endsWith(SECTION_SUFFIX)) {
+				sections.put(name, cont.toString());
+				name = s.substring(SECTION_PREFIX.length(), s.length() - SECTION_SUFFIX.length());
+				cont = new StringBuilder();
+			} else {
+				cont.append(line).append('\n');
+			}
+		}
+		sections.put(name, cont.toString());
+		return sections;
+	}
+}
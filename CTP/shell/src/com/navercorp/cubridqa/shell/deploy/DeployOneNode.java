@@ -292,7 +292,8 @@ public class DeployOneNode {
 	public void backup_linux() {
 		ShellScriptInput scripts = new ShellScriptInput();
 		scripts.addCommand("rm -rf ~/.CUBRID_SHELL_FM > /dev/null 2>&1");
-		scripts.addCommand("cp -r ${CUBRID} ~/.CUBRID_SHELL_FM");
+		// keep the modified time so that reset can find the changed files
+		scripts.addCommand("cp -rp ${CUBRID} ~/.CUBRID_SHELL_FM");
 		String result;
 		try {
 			result = ssh.execute(scripts);
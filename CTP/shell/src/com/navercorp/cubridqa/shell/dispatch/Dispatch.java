@@ -30,7 +30,10 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Map;
 
+import com.navercorp.cubridqa.common.CaseHistory;
+import com.navercorp.cubridqa.common.CaseScheduler;
 import com.navercorp.cubridqa.shell.common.CommonUtils;
 import com.navercorp.cubridqa.shell.common.Log;
 import com.navercorp.cubridqa.shell.common.SSHConnect;
@@ -53,7 +56,7 @@ public class Dispatch {
 	private ArrayList<String> tempSkippedList;
 	private int tempSkippedSize = 0;
 
-	private int nextTestFileIndex;
+	private CaseScheduler scheduler;
 	private Log all;
 
 	private boolean isFinished;
@@ -63,7 +66,6 @@ public class Dispatch {
 		this.tbdList = new ArrayList<String>();
 		this.totalTbdSize = 0;
 		this.isFinished = false;
-		this.nextTestFileIndex = -1;
 		load();
 	}
 
@@ -75,20 +77,15 @@ public class Dispatch {
 		return instance;
 	}
 
-	public synchronized String nextTestFile() {
+	public synchronized String nextTestFile(String envId) {
 
 		if (isFinished)
 			return null;
 
-		if (totalTbdSize == 0 || this.nextTestFileIndex >= totalTbdSize) {
+		String nextTestFile = scheduler.next(envId);
+		if (nextTestFile == null) {
 			isFinished = true;
-			return null;
-		}
-		if (this.nextTestFileIndex < 0) {
-			this.nextTestFileIndex = 0;
 		}
-		String nextTestFile = tbdList.get(this.nextTestFileIndex);
-		this.nextTestFileIndex++;
 		return nextTestFile;
 	}
 
@@ -157,7 +154,9 @@ public class Dispatch {
 			}
 			this.all.close();
 		}
-		this.nextTestFileIndex = -1;
+		Map<String, Long> elapseTimes = context.getFeedback().getCaseElapseTimes();
+		elapseTimes.putAll(CaseHistory.getInstance("shell").getMedians(tbdList));
+		this.scheduler = new CaseScheduler(tbdList, elapseTimes, context.getEnvList());
 		this.totalTbdSize = this.tbdList.size();
 		if (this.totalTbdSize == 0) {
 			this.isFinished = true;
@@ -82,6 +82,8 @@ public class Context {
 	String defaultDbCharset;
 
 	boolean enableCheckDiskSpace = false;
+
+	boolean enableCombinedCaseScript = false;
 	
 	String reserveDiskSpaceSize;
 
@@ -155,6 +157,8 @@ public class Context {
 		this.enableCheckDiskSpace = com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.ENABLE_CHECK_DISK_SPACE_YES_OR_NO, "FALSE").trim());
 		this.mailNoticeTo = getProperty(ConfigParameterConstants.TEST_OWNER_EMAIL, "").trim();
 
+		this.enableCombinedCaseScript = com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.ENABLE_COMBINED_CASE_SCRIPT_YES_OR_NO, "FALSE").trim());
+
 		this.enableSaveNormalErrorLog = com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.ENABLE_SAVE_LOG_ONCE_FAIL_YES_OR_NO, "FALSE").trim());
 
 		this.isContinueMode = com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.TEST_CONTINUE_YES_OR_NO, "false").trim());
@@ -293,6 +297,10 @@ public class Context {
 		return com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.ENABLE_STATUS_TRACE_YES_OR_NO, "false"));
 	}
 
+	public boolean needEnableMonitorAgent() {
+		return com.navercorp.cubridqa.common.CommonUtils.convertBoolean(getProperty(ConfigParameterConstants.ENABLE_MONITOR_AGENT_YES_OR_NO, "false"));
+	}
+
 	public String getExcludedCoresByAssertLine() {
 		return getProperty(ConfigParameterConstants.IGNORE_CORE_BY_KEYWORDS);
 	}
@@ -518,6 +526,10 @@ public class Context {
 	public boolean enableCheckDiskSpace() {
 		return enableCheckDiskSpace;
 	}
+
+	public boolean enableCombinedCaseScript() {
+		return enableCombinedCaseScript;
+	}
 	
 	public String getReserveDiskSpaceSize() {
 		return this.reserveDiskSpaceSize;
@@ -26,6 +26,8 @@
 
 package com.navercorp.cubridqa.shell.main;
 
+import java.util.Map;
+
 public interface Feedback {
 
 	public void onTaskStartEvent(String buildFilename);
@@ -57,4 +59,11 @@ public interface Feedback {
 
 	public void onStopEnvEvent(String envIdentify);
 
+	/**
+	 * get the elapse time of test cases in the last test.
+	 * 
+	 * @return test case to elapse time (ms).
+	 */
+	public Map<String, Long> getCaseElapseTimes();
+
 }
@@ -33,6 +33,7 @@ import java.util.Set;
 import com.navercorp.cubridqa.common.CommonUtils;
 import com.navercorp.cubridqa.shell.common.Log;
 import com.navercorp.cubridqa.shell.common.SSHConnect;
+import com.navercorp.cubridqa.shell.common.SSHSessionPool;
 import com.navercorp.cubridqa.shell.common.ShellScriptInput;
 
 public class Main {
@@ -112,7 +113,11 @@ public class Main {
 		contextSnapshot.close();
 
 		TestFactory factory = new TestFactory(context);
-		factory.execute();
+		try {
+			factory.execute();
+		} finally {
+			SSHSessionPool.closeAll();
+		}
 	}
 
 	private static String calcScenario(Context context) throws Exception {
@@ -28,18 +28,41 @@ package com.navercorp.cubridqa.shell.main;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.jcraft.jsch.JSchException;
+import com.navercorp.cubridqa.common.CaseHistory;
 import com.navercorp.cubridqa.common.ConfigParameterConstants;
 import com.navercorp.cubridqa.shell.common.CommonUtils;
 import com.navercorp.cubridqa.shell.common.Constants;
 import com.navercorp.cubridqa.shell.common.Log;
 import com.navercorp.cubridqa.shell.common.SSHConnect;
+import com.navercorp.cubridqa.shell.common.ScriptSections;
 import com.navercorp.cubridqa.shell.common.ShellScriptInput;
 import com.navercorp.cubridqa.shell.dispatch.Dispatch;
 
 public class Test {
 
+	// max seconds to wait for one related host in a per-host phase
+	private final static int RELATED_HOST_TIMEOUT = 600;
+
+	private final static int MAX_RELATED_HOST_THREADS = 8;
+
+	private final static String SECTION_PROCESS = "PROCESS";
+	private final static String SECTION_RESET = "RESET";
+	private final static String SECTION_DISK = "DISK";
+	private final static String SECTION_CHECK = "CHECK";
+	private final static String SECTION_RESULT = "RESULT";
+
 	Context context;
 	String currEnvId;
 
@@ -56,6 +79,7 @@ public class Test {
 	boolean shouldStop = false;
 	boolean isStopped = false;
 	boolean needDropTestCase = false;
+	boolean combinedCaseScript = false;
 
 	long startTime = 0;
 	int maxRetryCount = 0;
@@ -63,6 +87,8 @@ public class Test {
 	ArrayList<String> resultItemList = new ArrayList<String>();
 	String envIdentify;
 
+	ExecutorService relatedHostPool;
+
 	public Test(Context context, String currEnvId, boolean laterJoined) throws JSchException {
 		this.shouldStop = false;
 		this.isStopped = false;
@@ -75,10 +101,22 @@ public class Test {
 		this.workerLog = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "test_" + currEnvId + ".log"), false, true);
 
 		this.needDropTestCase = context.needDeleteTestCaseAfterTest();
+		this.combinedCaseScript = context.enableCombinedCaseScript() && !context.isWindows;
 
 		envIdentify = "EnvId=" + currEnvId + "[" + (ShellHelper.getTestNodeTitle(context, currEnvId)) + "]";
 		this.maxRetryCount = this.context.getMaxRetryCount();
 
+		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
+		if (relatedHosts != null && relatedHosts.size() > 0) {
+			this.relatedHostPool = Executors.newFixedThreadPool(Math.min(relatedHosts.size(), MAX_RELATED_HOST_THREADS), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "related-host-" + Test.this.currEnvId);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
 		resetSSH();
 	}
 
@@ -107,7 +145,7 @@ public class Test {
 				}
 			}
 
-			testCase = Dispatch.getInstance().nextTestFile();
+			testCase = Dispatch.getInstance().nextTestFile(currEnvId);
 			if (testCase == null) {
 				break;
 			}
@@ -131,11 +169,16 @@ public class Test {
 				 * Reset test environment Kill CUBRID process, clear SSH and
 				 * clear result item list
 				 */
-				resetProcess();
-				resetCUBRID();
-				resetSSH();
+				if (combinedCaseScript) {
+					prepareCase();
+					resetSSH();
+				} else {
+					resetProcess();
+					resetCUBRID();
+					resetSSH();
+				}
 				startTime = -1;
-				if (this.context.enableCheckDiskSpace()) {
+				if (this.context.enableCheckDiskSpace() && !combinedCaseScript) {
 					checkDiskSpace();
 				}
 
@@ -147,8 +190,15 @@ public class Test {
 
 				try {
 					consoleOutput = runTestCase();
-					doFinalCheck();
-					collectGeneralResult();
+					if (context.needEnableMonitorAgent()) {
+						checkAgentTimeout();
+					}
+					if (combinedCaseScript) {
+						finishCase();
+					} else {
+						doFinalCheck();
+						collectGeneralResult();
+					}
 				} catch (Exception e) {
 					this.addResultItem("NOK", "Runtime error (" + e.getMessage() + ")");
 				} finally {
@@ -208,6 +258,7 @@ public class Test {
 					} else {
 						context.getFeedback().onTestCaseStopEvent(this.testCaseFullName, testCaseSuccess, endTime - startTime, resultCont.toString(), envIdentify, isTimeOut, hasCore,
 								Constants.SKIP_TYPE_NO, retryCount);
+						CaseHistory.getInstance("shell").add(this.testCaseFullName, context.getTestBuild(), endTime - startTime);
 						System.out.println("[TESTCASE] " + this.testCaseFullName + " EnvId=" + this.currEnvId + " "
 								+ (testCaseSuccess ? "[OK]" : "[NOK]" + (this.maxRetryCount != 0 ? ", " + Constants.RETRY_FLAG + retryCount : "")));
 					}
@@ -230,6 +281,27 @@ public class Test {
 		isStopped = true;
 	}
 
+	/**
+	 * the monitor agent kills the processes on the node by itself, so the
+	 * case may return before the controller gets the timeout.
+	 */
+	private synchronized void checkAgentTimeout() {
+		int timeout;
+		try {
+			timeout = Integer.parseInt(context.getTestCaseTimeout());
+		} catch (Exception e) {
+			return;
+		}
+		if (timeout < 0 || isTimeOut || startTime <= 0) {
+			return;
+		}
+		if (System.currentTimeMillis() - startTime >= timeout * 1000L) {
+			testCaseSuccess = false;
+			addResultItem("NOK", "timeout");
+			isTimeOut = true;
+		}
+	}
+
 	public String runTestCase() throws Exception {
 		if (this.context.isWindows) {
 			return runTestCase_windows();
@@ -370,6 +442,8 @@ public class Test {
 
 		if (ssh != null)
 			ssh.close();
+		if (relatedHostPool != null)
+			relatedHostPool.shutdownNow();
 		isStopped = true;
 		shouldStop = true;
 		this.startTime = -1;
@@ -408,48 +482,54 @@ public class Test {
 	}
 
 	public void resetCUBRID_linux() {
-		ShellScriptInput scripts = new ShellScriptInput();
-		scripts.addCommand("rm -rf ${CUBRID}/conf/*");
-		scripts.addCommand("cp -rf ~/.CUBRID_SHELL_FM/conf/* ${CUBRID}/conf/");
-		scripts.addCommand("rm -rf ${CUBRID}/databases/*");
-		scripts.addCommand("cp -rf ~/.CUBRID_SHELL_FM/databases/* ${CUBRID}/databases/");
-		scripts.addCommand("rm -rf ${CUBRID}/lib/libcubrid_??_??.so");
-		scripts.addCommand("rm -rf ${CUBRID}/lib/libcubrid_all_locales.so");
-		scripts.addCommand("rm -rf ${CUBRID}/var/* >/dev/null 2>&1");
-		scripts.addCommand("find ${CUBRID}/log -type f -print | xargs -i rm -rf {} ");
-		scripts.addCommand("find ${CUBRID}/ -name \"core.[0-9][0-9]*\" | xargs -i rm -rf {} ");
-		scripts.addCommand("find ${CUBRID}/ -name \"core\" | xargs -i rm -rf {} ");
-
-		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
-		if (relatedHosts.size() > 0) {
-			SSHConnect sshRelated;
-			for (String h : relatedHosts) {
-				sshRelated = null;
-				try {
-					sshRelated = ShellHelper.createTestNodeConnect(context, currEnvId, h);
-					sshRelated.execute(scripts);
-					workerLog.println("[INFO] remove core file successfully on " + h + ".");
-				} catch (Exception e) {
-					workerLog.println("[INFO] fail to remove core file on " + h + ":" + e.getMessage());
-				} finally {
-					if (sshRelated != null) {
-						sshRelated.close();
-					}
-				}
-
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return sshRelated.execute(getResetCUBRIDScripts(false));
 			}
-		}
-
-		scripts.addCommand("find " + this.testCaseDir + " -name \"core.[0-9][0-9]*\" | xargs -i rm -rf {} ");
-		scripts.addCommand("find " + this.testCaseDir + " -name \"core\" | xargs -i rm -rf {} ");
+		});
 
 		String result;
 		try {
-			result = ssh.execute(scripts);
+			result = ssh.execute(getResetCUBRIDScripts(true));
 			workerLog.println("[INFO] Reset CUBRID: " + result);
 		} catch (Exception e) {
 			workerLog.println("[ERROR] Fail to reset CUBRID (" + e.getMessage() + ")");
 		}
+
+		for (Map.Entry<String, Future<String>> entry : relatedResults.entrySet()) {
+			try {
+				waitForRelatedHost(entry.getValue());
+				workerLog.println("[INFO] remove core file successfully on " + entry.getKey() + ".");
+			} catch (Exception e) {
+				workerLog.println("[INFO] fail to remove core file on " + entry.getKey() + ":" + e.getMessage());
+			}
+		}
+	}
+
+	private ShellScriptInput getResetCUBRIDScripts(boolean isMainHost) {
+		ShellScriptInput scripts = new ShellScriptInput();
+		// only the files changed since the snapshot are copied back by rsync
+		scripts.addCommand("if which rsync >/dev/null 2>&1; then");
+		scripts.addCommand("    rsync -a --delete ~/.CUBRID_SHELL_FM/conf/ ${CUBRID}/conf/");
+		scripts.addCommand("    rsync -a --delete ~/.CUBRID_SHELL_FM/databases/ ${CUBRID}/databases/");
+		scripts.addCommand("else");
+		scripts.addCommand("    rm -rf ${CUBRID}/conf/*");
+		scripts.addCommand("    cp -rf ~/.CUBRID_SHELL_FM/conf/* ${CUBRID}/conf/");
+		scripts.addCommand("    rm -rf ${CUBRID}/databases/*");
+		scripts.addCommand("    cp -rf ~/.CUBRID_SHELL_FM/databases/* ${CUBRID}/databases/");
+		scripts.addCommand("fi");
+		scripts.addCommand("rm -rf ${CUBRID}/lib/libcubrid_??_??.so");
+		scripts.addCommand("rm -rf ${CUBRID}/lib/libcubrid_all_locales.so");
+		scripts.addCommand("rm -rf ${CUBRID}/var/* >/dev/null 2>&1");
+		scripts.addCommand("find ${CUBRID}/log -type f -print | xargs -i rm -rf {} ");
+		// the cores are checked after each case, so the directories which no
+		// process runs in are skipped here
+		scripts.addCommand("find -H ${CUBRID} \\( -path ${CUBRID}/lib -o -path ${CUBRID}/include -o -path ${CUBRID}/share -o -path ${CUBRID}/msg -o -path ${CUBRID}/jdbc \\) -prune -o "
+				+ "-type f \\( -name \"core.[0-9][0-9]*\" -o -name \"core\" \\) -print | xargs -i rm -rf {} ");
+		if (isMainHost) {
+			scripts.addCommand("find " + this.testCaseDir + " -type f \\( -name \"core.[0-9][0-9]*\" -o -name \"core\" \\) -print | xargs -i rm -rf {} ");
+		}
+		return scripts;
 	}
 
 	public void resetSSH() throws JSchException {
@@ -463,27 +543,21 @@ public class Test {
 	}
 
 	public void resetProcess() {
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return CommonUtils.resetProcess(sshRelated, context.isWindows, context.isExecuteAtLocal());
+			}
+		});
+
 		String result = CommonUtils.resetProcess(ssh, context.isWindows, context.isExecuteAtLocal());
 		workerLog.println("[INFO] CLEAN PROCESSES: " + result);
 
-		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
-		if (relatedHosts == null || relatedHosts.size() == 0) {
-			return;
-		}
-
-		SSHConnect sshRelated;
-		for (String h : relatedHosts) {
-			sshRelated = null;
+		for (Map.Entry<String, Future<String>> entry : relatedResults.entrySet()) {
 			try {
-				sshRelated = ShellHelper.createTestNodeConnect(context, currEnvId);
-				result = CommonUtils.resetProcess(sshRelated, context.isWindows, context.isExecuteAtLocal());
-				workerLog.println("[INFO] CLEAN PROCESSES(" + h + "): " + result);
+				result = waitForRelatedHost(entry.getValue());
+				workerLog.println("[INFO] CLEAN PROCESSES(" + entry.getKey() + "): " + result);
 			} catch (Exception e) {
-				workerLog.println("[ERROR] CLEAN PROCESSES(" + h + "): " + e.getMessage());
-			} finally {
-				if (sshRelated != null) {
-					sshRelated.close();
-				}
+				workerLog.println("[ERROR] CLEAN PROCESSES(" + entry.getKey() + "): " + e.getMessage());
 			}
 		}
 	}
@@ -505,24 +579,118 @@ public class Test {
 				CommonUtils.sleep(1);
 			} while (retryCount-- > 0 && result.trim().length() == 0);
 
-			if (result.trim().equals("")) {
-				addResultItem("NOK", "blank result - " + new Date() + " - " + testCaseDir + "\\" + testCaseResultName);
+			addGeneralResult(result);
+		} catch (Exception e) {
+			addResultItem("NOK", "Runtime error (" + e.getMessage() + ")");
+		}
+	}
+
+	private void addGeneralResult(String result) {
+		if (result.trim().equals("")) {
+			addResultItem("NOK", "blank result - " + new Date() + " - " + testCaseDir + "\\" + testCaseResultName);
+		}
+
+		if (result.trim().equals("")) {
+			addResultItem("NOK", "blank result");
+		}
+
+		String[] itemArrary = result.split("\n");
+		if (itemArrary != null) {
+			for (String item : itemArrary) {
+				if (!item.trim().equals("")) {
+					addResultItem(null, item);
+				}
 			}
+		}
+	}
 
-			if (result.trim().equals("")) {
-				addResultItem("NOK", "blank result");
+	/**
+	 * clean processes, reset CUBRID and check disk space with one script for
+	 * each host. It is used instead of resetProcess, resetCUBRID and
+	 * checkDiskSpace in combined case script mode.
+	 */
+	public void prepareCase() {
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return sshRelated.execute(getPrepareCaseScripts(false));
 			}
+		});
 
-			String[] itemArrary = result.split("\n");
-			if (itemArrary != null) {
-				for (String item : itemArrary) {
-					if (!item.trim().equals("")) {
-						addResultItem(null, item);
-					}
-				}
+		try {
+			logPrepareCaseResult(null, ssh.execute(getPrepareCaseScripts(true)));
+		} catch (Exception e) {
+			workerLog.println("[ERROR] Fail to prepare case (" + e.getMessage() + ")");
+		}
+
+		for (Map.Entry<String, Future<String>> entry : relatedResults.entrySet()) {
+			try {
+				logPrepareCaseResult(entry.getKey(), waitForRelatedHost(entry.getValue()));
+			} catch (Exception e) {
+				workerLog.println("[ERROR] Fail to prepare case on " + entry.getKey() + " (" + e.getMessage() + ")");
+			}
+		}
+	}
+
+	private ShellScriptInput getPrepareCaseScripts(boolean isMainHost) {
+		ShellScriptInput scripts = new ShellScriptInput();
+		scripts.addCommand(ScriptSections.getSectionCommand(SECTION_PROCESS));
+		scripts.addScript(context.isExecuteAtLocal() ? Constants.LIN_KILL_PROCESS_LOCAL : Constants.LIN_KILL_PROCESS);
+		scripts.addCommand(ScriptSections.getSectionCommand(SECTION_RESET));
+		scripts.addScript(getResetCUBRIDScripts(isMainHost));
+		if (context.enableCheckDiskSpace()) {
+			scripts.addCommand(ScriptSections.getSectionCommand(SECTION_DISK));
+			scripts.addScript(getCheckDiskSpaceScripts());
+		}
+		return scripts;
+	}
+
+	private void logPrepareCaseResult(String host, String result) {
+		LinkedHashMap<String, String> sections = ScriptSections.parse(result);
+		String on = host == null ? "" : "(" + host + ")";
+		workerLog.println("[INFO] CLEAN PROCESSES" + on + ": " + sections.get(SECTION_PROCESS));
+		workerLog.println("[INFO] Reset CUBRID" + on + ": " + sections.get(SECTION_RESET));
+		if (sections.containsKey(SECTION_DISK)) {
+			workerLog.println("[INFO] Check disk space" + on + ": " + sections.get(SECTION_DISK));
+		}
+	}
+
+	/**
+	 * check more errors and collect the result file with one script for each
+	 * host. It is used instead of doFinalCheck and collectGeneralResult in
+	 * combined case script mode.
+	 */
+	public void finishCase() {
+		final ShellScriptInput checkScripts = getFinalCheckScripts();
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return sshRelated.execute(checkScripts);
 			}
+		});
+
+		ShellScriptInput scripts = new ShellScriptInput();
+		scripts.addCommand(ScriptSections.getSectionCommand(SECTION_CHECK));
+		scripts.addCommand("(");
+		scripts.addScript(checkScripts);
+		scripts.addCommand(")");
+		scripts.addCommand(ScriptSections.getSectionCommand(SECTION_RESULT));
+		scripts.addCommand("cd " + testCaseDir);
+		// wait only while the result file is still blank
+		scripts.addCommand("for i in 1 2 3 4 5; do if grep -q '[^[:space:]]' " + testCaseResultName + " 2>/dev/null; then break; fi; sleep 1; done");
+		scripts.addCommand("cat " + testCaseResultName);
+
+		String result = null;
+		try {
+			result = ssh.execute(scripts);
 		} catch (Exception e) {
-			addResultItem("NOK", "Runtime error (" + e.getMessage() + ")");
+			String host = context.getInstanceProperty(currEnvId, ConfigParameterConstants.TEST_INSTANCE_HOST_SUFFIX);
+			addResultItem("NOK", "Runtime error. Fail to check more errors on main host " + host + ": " + e.getMessage());
+		}
+
+		addFinalCheckResults(relatedResults);
+
+		if (result != null) {
+			String cont = ScriptSections.parse(result).get(SECTION_RESULT);
+			addGeneralResult(cont == null ? "" : cont);
 		}
 	}
 
@@ -545,8 +713,26 @@ public class Test {
 	}
 
 	private synchronized void doFinalCheck() {
-		String result = null;
+		final ShellScriptInput scripts = getFinalCheckScripts();
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return sshRelated.execute(scripts);
+			}
+		});
+
+		if (context.isWindows == false) {
+			try {
+				ssh.execute(scripts);
+			} catch (Exception e) {
+				String host = context.getInstanceProperty(currEnvId, ConfigParameterConstants.TEST_INSTANCE_HOST_SUFFIX);
+				addResultItem("NOK", "Runtime error. Fail to check more errors on main host " + host + ": " + e.getMessage());
+			}
+		}
+
+		addFinalCheckResults(relatedResults);
+	}
 
+	private ShellScriptInput getFinalCheckScripts() {
 		ShellScriptInput scripts = new ShellScriptInput("source /dev/stdin <<EOF");
 		scripts.addCommand("`grep -E \"SKIP_CHECK_FATAL_ERROR\" " + this.testCaseFullName + " `");
 		scripts.addCommand("EOF");
@@ -554,42 +740,27 @@ public class Test {
 		String excludedCoresByAssertLine = context.getProperty(ConfigParameterConstants.IGNORE_CORE_BY_KEYWORDS);
 		if (excludedCoresByAssertLine != null && excludedCoresByAssertLine.trim().equals("") == false) {
 			scripts.addCommand("export EXCLUDED_CORES_BY_ASSERT_LINE=\"" + excludedCoresByAssertLine + "\"");
-		}		
+		}
 		addSshInfoScript(scripts);
 		scripts.addCommand("source $init_path/shell_utils.sh && do_check_more_errors \"" + this.testCaseDir + "\"");
-		if (context.isWindows == false) {
-			try {
-				result = ssh.execute(scripts);
-			} catch (Exception e) {
-				String host = context.getInstanceProperty(currEnvId, ConfigParameterConstants.TEST_INSTANCE_HOST_SUFFIX);
-				addResultItem("NOK", "Runtime error. Fail to check more errors on main host " + host + ": " + e.getMessage());
-			}
-		}
+		return scripts;
+	}
 
-		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
-		if (relatedHosts.size() > 0) {
-			SSHConnect sshRelated;
-			for (String h : relatedHosts) {
-				sshRelated = null;
-				result = null;
-				try {
-					sshRelated = ShellHelper.createTestNodeConnect(context, currEnvId, h);
-					result = sshRelated.execute(scripts);
-					String[] itemArrary = result.split("\n");
-					if (itemArrary != null) {
-						for (String item : itemArrary) {
-							if (!item.trim().equals("")) {
-								addResultItem(null, item);
-							}
+	private void addFinalCheckResults(LinkedHashMap<String, Future<String>> relatedResults) {
+		String result;
+		for (Map.Entry<String, Future<String>> entry : relatedResults.entrySet()) {
+			try {
+				result = waitForRelatedHost(entry.getValue());
+				String[] itemArrary = result.split("\n");
+				if (itemArrary != null) {
+					for (String item : itemArrary) {
+						if (!item.trim().equals("")) {
+							addResultItem(null, item);
 						}
 					}
-				} catch (Exception e) {
-					addResultItem("NOK", "Runtime error. Fail to connect to the related host " + h + ": " + e.getMessage());
-				} finally {
-					if (sshRelated != null) {
-						sshRelated.close();
-					}
 				}
+			} catch (Exception e) {
+				addResultItem("NOK", "Runtime error. Fail to connect to the related host " + entry.getKey() + ": " + e.getMessage());
 			}
 		}
 	}
@@ -626,11 +797,16 @@ public class Test {
 		}
 	}
 
-	private void checkDiskSpace(SSHConnect ssh1, boolean closeSSH) {
-
+	private ShellScriptInput getCheckDiskSpaceScripts() {
 		ShellScriptInput scripts = new ShellScriptInput();
 		scripts.addCommand("source ${init_path}/../../common/script/util_common.sh");
 		scripts.addCommand("check_disk_space `df -P $HOME | grep -v Filesystem | awk '{print $1}'` " + context.getReserveDiskSpaceSize() + " \"" + context.getMailNoticeTo() + "\" \"" + context.getMailNoticeCC() + "\"");
+		return scripts;
+	}
+
+	private void checkDiskSpace(SSHConnect ssh1, boolean closeSSH) {
+
+		ShellScriptInput scripts = getCheckDiskSpaceScripts();
 		String result;
 		long startSecs = System.currentTimeMillis() / 1000;
 		try {
@@ -651,9 +827,16 @@ public class Test {
 
 	public String doSaveNormalErrorLog() throws JSchException {
 		String ret = "";
-		ShellScriptInput scripts = new ShellScriptInput();
+		final ShellScriptInput scripts = new ShellScriptInput();
 		addSshInfoScript(scripts);
 		scripts.addCommand("source $init_path/shell_utils.sh && do_save_normal_error_logs \"" + this.testCaseDir + "\"");
+
+		LinkedHashMap<String, Future<String>> relatedResults = executeOnRelatedHosts(new RelatedHostTask() {
+			public String execute(SSHConnect sshRelated) throws Exception {
+				return sshRelated.execute(scripts);
+			}
+		});
+
 		StringBuffer sb = new StringBuffer();
 		String result = "";
 		try {
@@ -665,29 +848,64 @@ public class Test {
 			workerLog.println("[ERROR] fail to save log on " + e.getMessage());
 		}
 
-		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
-		if (relatedHosts.size() > 0) {
-			SSHConnect sshRelated;
-			for (String h : relatedHosts) {
-				sshRelated = null;
-				try {
-					sshRelated = ShellHelper.createTestNodeConnect(context, currEnvId, h);
-					sshRelated.execute(scripts);
-					sb.append("[INFO] Normal error log locations on related server:" + result).append(Constants.LINE_SEPARATOR);
-					workerLog.println("[INFO] finish save log successfully on " + h + ".");
-				} catch (Exception e) {
-					workerLog.println("[ERROR] fail to save log on " + h + ":" + e.getMessage());
-				} finally {
-					if (sshRelated != null) {
-						sshRelated.close();
-					}
-				}
+		for (Map.Entry<String, Future<String>> entry : relatedResults.entrySet()) {
+			try {
+				result = waitForRelatedHost(entry.getValue());
+				sb.append("[INFO] Normal error log locations on related server:" + result).append(Constants.LINE_SEPARATOR);
+				workerLog.println("[INFO] finish save log successfully on " + entry.getKey() + ".");
+			} catch (Exception e) {
+				workerLog.println("[ERROR] fail to save log on " + entry.getKey() + ":" + e.getMessage());
 			}
 		}
 		ret = sb.toString();
 		return ret;
 	}
-	
+
+	/**
+	 * start the task on every related host of current env at the same time.
+	 * The results are returned in the order of related hosts.
+	 */
+	private LinkedHashMap<String, Future<String>> executeOnRelatedHosts(final RelatedHostTask task) {
+		LinkedHashMap<String, Future<String>> futures = new LinkedHashMap<String, Future<String>>();
+		ArrayList<String> relatedHosts = context.getRelatedHosts(currEnvId);
+		if (relatedHostPool == null || relatedHosts == null) {
+			return futures;
+		}
+
+		for (final String h : relatedHosts) {
+			futures.put(h, relatedHostPool.submit(new Callable<String>() {
+				public String call() throws Exception {
+					SSHConnect sshRelated = null;
+					try {
+						sshRelated = ShellHelper.createTestNodeConnect(context, currEnvId, h);
+						return task.execute(sshRelated);
+					} finally {
+						if (sshRelated != null) {
+							sshRelated.close();
+						}
+					}
+				}
+			}));
+		}
+		return futures;
+	}
+
+	private String waitForRelatedHost(Future<String> future) throws Exception {
+		try {
+			return future.get(RELATED_HOST_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new Exception("timeout after " + RELATED_HOST_TIMEOUT + " seconds");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : new Exception(cause);
+		}
+	}
+
+	interface RelatedHostTask {
+		public String execute(SSHConnect sshRelated) throws Exception;
+	}
+
 	private void addSshInfoScript(ShellScriptInput script) {
 		script.addCommand("export TEST_SSH_HOST=" + (CommonUtils.isEmpty(ssh.getHost()) ? "`hostname -i`" : ssh.getHost()));
 		script.addCommand("export TEST_SSH_PORT=" + (ssh.getPort() <= 0 ? context.getProperty("default." + ConfigParameterConstants.TEST_INSTANCE_PORT_SUFFIX) : ssh.getPort()));
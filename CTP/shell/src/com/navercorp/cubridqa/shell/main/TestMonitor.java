@@ -27,12 +27,17 @@
 package com.navercorp.cubridqa.shell.main;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import com.navercorp.cubridqa.common.ChannelOutputReader.OutputConsumer;
 import com.navercorp.cubridqa.shell.common.CommonUtils;
 import com.navercorp.cubridqa.shell.common.Constants;
 import com.navercorp.cubridqa.shell.common.Log;
 import com.navercorp.cubridqa.shell.common.SSHConnect;
 import com.navercorp.cubridqa.shell.common.ShellScriptInput;
+import com.navercorp.cubridqa.shell.service.MonitorAgent;
+import com.navercorp.cubridqa.shell.service.ShellService;
 
 public class TestMonitor {
 
@@ -45,13 +50,16 @@ public class TestMonitor {
 	boolean enableTracing = false;
 	ArrayList<SSHConnect> sshRelateds = null;
 	ShellScriptInput traceScript;
+	String traceStateFile;
+
+	boolean agentMode = false;
+	String monitorId;
+	LinkedHashMap<SSHConnect, ShellService> agents = null;
 
 	public TestMonitor(Context context, Test test) throws Exception {
 		this.context = context;
 		this.test = test;
 
-		this.log = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "monitor_" + test.getCurrentEnvId() + ".log"), false, context.isContinueMode);
-
 		this.ssh = ShellHelper.createTestNodeConnect(context, test.getCurrentEnvId());
 		this.initRelatedSSH();
 
@@ -61,16 +69,74 @@ public class TestMonitor {
 			testCaseTimeout = -1;
 		}
 
+		this.traceStateFile = "${HOME}/.ctp_monitor/" + test.getCurrentEnvId() + "_" + System.currentTimeMillis() + "_`hostname`";
 		try {
 			enableTracing = context.needEnableMonitorTrace();
-			traceScript = initTraceScript();
+			traceScript = initTraceScript(true);
 		} catch (Exception e) {
 			enableTracing = false;
 		}
 
+		// the trace data is compressed
+		String suffix = enableTracing ? ".log.gz" : ".log";
+		this.log = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "monitor_" + test.getCurrentEnvId() + suffix), false, context.isContinueMode, enableTracing);
 		if (enableTracing && sshRelateds != null && sshRelateds.size() > 0) {
-			this.logRelated = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "monitor_" + test.getCurrentEnvId() + "_related.log"), false, context.isContinueMode);
+			this.logRelated = new Log(CommonUtils.concatFile(context.getCurrentLogDir(), "monitor_" + test.getCurrentEnvId() + "_related" + suffix), false, context.isContinueMode, true);
+		}
+
+		if (context.needEnableMonitorAgent() && ssh.isRemoteAgent()) {
+			agentMode = openAgents();
+		}
+	}
+
+	/**
+	 * open the monitors on the remote agents. The agent of main host resolves
+	 * the case timeout and all agents sample the trace data locally.
+	 */
+	private boolean openAgents() {
+		this.monitorId = test.getCurrentEnvId() + "_" + System.currentTimeMillis();
+		this.agents = new LinkedHashMap<SSHConnect, ShellService>();
+
+		ArrayList<SSHConnect> list = new ArrayList<SSHConnect>();
+		list.add(ssh);
+		list.addAll(sshRelateds);
+
+		// the agent sends only the changed lines, so it reads whole logs
+		String traces = enableTracing ? initTraceScript(false).getCommands() : null;
+		String kills = context.isWindows ? Constants.WIN_KILL_PROCESS.getCommands() : (context.isExecuteAtLocal() ? Constants.LIN_KILL_PROCESS_LOCAL : Constants.LIN_KILL_PROCESS).getCommands();
+		ShellService srv;
+		try {
+			for (SSHConnect s : list) {
+				if (!s.isRemoteAgent()) {
+					throw new Exception(s + " is not a remote agent");
+				}
+				srv = s.getShellService();
+				if (!srv.openMonitor(s.getUser(), s.getPwd(), monitorId, traces, 3, s == ssh ? kills : null)) {
+					throw new Exception("monitor is denied by " + s);
+				}
+				agents.put(s, srv);
+			}
+			log.println("[INFO] monitor agent is opened: " + monitorId);
+			return true;
+		} catch (Exception e) {
+			log.println("[INFO] monitor agent is not available, poll by the controller: " + e.getMessage());
+			closeAgents();
+			return false;
+		}
+	}
+
+	private void closeAgents() {
+		if (agents == null) {
+			return;
+		}
+		for (Map.Entry<SSHConnect, ShellService> entry : agents.entrySet()) {
+			try {
+				entry.getValue().closeMonitor(entry.getKey().getUser(), entry.getKey().getPwd(), monitorId);
+			} catch (Exception e) {
+				// no need concern
+			}
 		}
+		agents.clear();
 	}
 
 	private void initRelatedSSH() {
@@ -102,6 +168,14 @@ public class TestMonitor {
 	}
 
 	public void startMonitor() {
+		if (agentMode) {
+			while (test.isStopped() == false) {
+				pollAgents();
+				CommonUtils.sleep(1);
+			}
+			return;
+		}
+
 		while (test.isStopped() == false) {
 			monitorOnce();
 			if (enableTracing) {
@@ -128,7 +202,7 @@ public class TestMonitor {
 		}
 	}
 
-	private ShellScriptInput initTraceScript() {
+	private ShellScriptInput initTraceScript(boolean tailLogs) {
 		ShellScriptInput scripts = new ShellScriptInput();
 
 		scripts.addCommand("date");
@@ -153,11 +227,16 @@ public class TestMonitor {
 			scripts.addCommand("ps -u $USER -f");
 		}
 
-		scripts.addCommand("echo --------------CUBRID/log/* ---------------");
-		scripts.addCommand("cat $CUBRID/log/*");
+		if (tailLogs) {
+			scripts.addCommand("echo --------------CUBRID/log (appended) ---------------");
+			addLogTailScript(scripts);
+		} else {
+			scripts.addCommand("echo --------------CUBRID/log/* ---------------");
+			scripts.addCommand("cat $CUBRID/log/*");
 
-		scripts.addCommand("echo --------------CUBRID/log/server ---------------");
-		scripts.addCommand("cat $CUBRID/log/server/*");
+			scripts.addCommand("echo --------------CUBRID/log/server ---------------");
+			scripts.addCommand("cat $CUBRID/log/server/*");
+		}
 
 		scripts.addCommand("echo --------------CUBRID/databases ---------------");
 		scripts.addCommand("cat $CUBRID/databases/databases*");
@@ -180,18 +259,43 @@ public class TestMonitor {
 
 	}
 
+	/**
+	 * print only the bytes appended since the last collection. The offsets are
+	 * kept by inode in a state file on the node, so a renamed log goes on
+	 * from its offset and a new or truncated one is read from the beginning.
+	 */
+	private void addLogTailScript(ShellScriptInput scripts) {
+		scripts.addCommand("mkdir -p ${HOME}/.ctp_monitor");
+		scripts.addCommand("ctp_state=" + traceStateFile);
+		scripts.addCommand("touch ${ctp_state}; : > ${ctp_state}.new");
+		scripts.addCommand("for f in $CUBRID/log/* $CUBRID/log/server/*; do");
+		scripts.addCommand("    if [ ! -f \"$f\" ]; then continue; fi");
+		scripts.addCommand("    cur=`stat -L -c '%i %s' \"$f\" 2>/dev/null`; ino=${cur% *}; size=${cur#* }");
+		scripts.addCommand("    old_size=`awk -v i=\"$ino\" '$1==i {print $2; exit}' ${ctp_state}`");
+		scripts.addCommand("    if [ \"$old_size\" = \"\" ] || [ $size -lt $old_size ]; then old_size=0; fi");
+		scripts.addCommand("    if [ $size -gt $old_size ]; then");
+		scripts.addCommand("        echo \"==> $f (from $old_size)\"");
+		scripts.addCommand("        tail -c +$((old_size + 1)) \"$f\" | head -c $((size - old_size)); echo");
+		scripts.addCommand("    fi");
+		scripts.addCommand("    echo \"$ino $size $f\" >> ${ctp_state}.new");
+		scripts.addCommand("done");
+		scripts.addCommand("mv -f ${ctp_state}.new ${ctp_state}");
+	}
+
 	private void collectRuntimeData() {
 
 		try {
-			String result = this.ssh.execute(this.traceScript);
 			log.println("[COLLECT]" + test.testCaseFullName + " (" + new java.util.Date() + ")");
-			log.println(result);
+			this.ssh.execute(this.traceScript, new LogConsumer(log));
+			log.println("");
+			log.finishBlock();
 
 			if (this.sshRelateds != null) {
 				for (SSHConnect s : sshRelateds) {
-					result = s.execute(this.traceScript);
 					logRelated.println("[COLLECT-" + s.getHost() + "]" + test.testCaseFullName + " (" + new java.util.Date() + ")");
-					logRelated.println(result);
+					s.execute(this.traceScript, new LogConsumer(logRelated));
+					logRelated.println("");
+					logRelated.finishBlock();
 				}
 			}
 		} catch (Exception e) {
@@ -199,6 +303,86 @@ public class TestMonitor {
 		}
 	}
 
+	private void pollAgents() {
+		String caseKey;
+		long remaining;
+		synchronized (test) {
+			caseKey = test.startTime > 0 ? test.testCaseFullName + "@" + test.startTime : null;
+			if (caseKey == null || testCaseTimeout < 0) {
+				remaining = -1;
+			} else {
+				remaining = Math.max(0, testCaseTimeout * 1000L - (System.currentTimeMillis() - test.startTime));
+			}
+		}
+
+		String[] events;
+		for (Map.Entry<SSHConnect, ShellService> entry : agents.entrySet()) {
+			SSHConnect s = entry.getKey();
+			try {
+				events = entry.getValue().pollMonitor(s.getUser(), s.getPwd(), monitorId, caseKey, remaining);
+			} catch (Exception e) {
+				log.println("[ERROR] fail to poll monitor agent on " + s + ": " + e.getMessage());
+				continue;
+			}
+			if (events == null) {
+				continue;
+			}
+
+			for (String event : events) {
+				if (event.startsWith(MonitorAgent.EVENT_TIMEOUT)) {
+					resolveAgentTimeout(event);
+				} else if (s == ssh) {
+					log.println("[COLLECT]" + test.testCaseFullName + " " + event);
+				} else if (logRelated != null) {
+					logRelated.println("[COLLECT-" + s.getHost() + "]" + test.testCaseFullName + " " + event);
+				}
+			}
+			if (events.length > 0) {
+				if (s == ssh) {
+					log.finishBlock();
+				} else if (logRelated != null) {
+					logRelated.finishBlock();
+				}
+			}
+		}
+	}
+
+	private void resolveAgentTimeout(String event) {
+		int p = event.indexOf('\n');
+		String caseKey = event.substring(MonitorAgent.EVENT_TIMEOUT.length(), p == -1 ? event.length() : p).trim();
+		String result = p == -1 ? "" : event.substring(p + 1);
+
+		synchronized (test) {
+			// the case may be finished before the agent reports
+			if (test.startTime <= 0 || !caseKey.equals(test.testCaseFullName + "@" + test.startTime)) {
+				log.println("[INFO] ignore timeout of " + caseKey);
+				return;
+			}
+
+			long elapse_time = (System.currentTimeMillis() - test.startTime) / 1000;
+			if (!test.isTimeOut) {
+				test.testCaseSuccess = false;
+				test.addResultItem("NOK", "timeout");
+				test.isTimeOut = true;
+			}
+			context.getFeedback().onTestCaseMonitor(test.testCaseFullName,
+					"[RESOLVE] " + testCaseTimeout + " + timeout (actual: " + elapse_time + " seconds)" + Constants.LINE_SEPARATOR + "CLEAN PROCESSES: " + Constants.LINE_SEPARATOR + result,
+					test.envIdentify);
+		}
+	}
+
+	private void removeTraceState() {
+		ShellScriptInput scripts = new ShellScriptInput("rm -f " + traceStateFile);
+		try {
+			ssh.execute(scripts);
+			for (SSHConnect s : sshRelateds) {
+				s.execute(scripts);
+			}
+		} catch (Exception e) {
+			// no need concern
+		}
+	}
+
 	private void resolveTimeout() {
 
 		synchronized (test) {
@@ -234,6 +418,10 @@ public class TestMonitor {
 	}
 
 	public void close() {
+		closeAgents();
+		if (enableTracing && !agentMode) {
+			removeTraceState();
+		}
 		this.ssh.close();
 		this.log.close();
 		/*
@@ -253,4 +441,16 @@ public class TestMonitor {
 			}
 		}
 	}
+
+	private static class LogConsumer implements OutputConsumer {
+		private Log log;
+
+		LogConsumer(Log log) {
+			this.log = log;
+		}
+
+		public void onOutput(String output) {
+			log.print(output);
+		}
+	}
 }
@@ -26,11 +26,22 @@
 
 package com.navercorp.cubridqa.shell.result;
 
+import java.net.SocketException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -50,11 +61,27 @@ public class FeedbackDB implements Feedback {
 	DataSource ds = null;
 	final int MAX_CONTENT_SIZE = 128 * 1024;
 
+	final int MAX_QUEUE_SIZE = 1000;
+	final int MAX_BATCH_SIZE = 50;
+	final int MAIN_FLUSH_INTERVAL = 5 * 1000;
+	final int WRITE_RETRY_INTERVAL = 5;
+	final int MAX_WRITE_RETRY = 12;
+
 	int task_id = 0;
 	int tbdNum = 0;
 	int macroSkippedNum = 0;
 	int tempSkippedNum = 0;
 
+	// the results are written to database by the writer thread
+	BlockingQueue<ItemRecord> itemQueue = new LinkedBlockingQueue<ItemRecord>(MAX_QUEUE_SIZE);
+	Thread writer = null;
+	volatile boolean writerStopped = false;
+
+	int succNum = 0;
+	int failNum = 0;
+	String testError = null;
+	boolean counterChanged = false;
+
 	public FeedbackDB(Context context) {
 		this.context = context;
 		this.ds = setupDataSource();
@@ -121,20 +148,25 @@ public class FeedbackDB implements Feedback {
 	@Override
 	public void onTaskContinueEvent() {
 
-		String cont = null;
 		try {
-			cont = CommonUtils.getFileContent(CommonUtils.concatFile(context.getCurrentLogDir(), "current_task_id"));
-			this.task_id = Integer.parseInt(cont.trim());
+			this.task_id = readContinueTaskId();
 			context.setTaskId(task_id);
 		} catch (Exception e) {
 			this.task_id = -1;
 			e.printStackTrace();
 		}
+		loadShellMain();
+	}
+
+	private int readContinueTaskId() throws Exception {
+		String cont = CommonUtils.getFileContent(CommonUtils.concatFile(context.getCurrentLogDir(), "current_task_id"));
+		return Integer.parseInt(cont.trim());
 	}
 
 	@Override
 	public void onTaskStopEvent() {
 
+		stopWriter();
 		showTestResult();
 
 		shutdownDataSource();
@@ -152,59 +184,34 @@ public class FeedbackDB implements Feedback {
 		}
 	}
 
-	private synchronized void updateShellMain(boolean newSucc, boolean newCore) {
-		Connection conn = null;
+	/**
+	 * write the counters kept in memory to shell_main.
+	 */
+	private void updateShellMain() throws SQLException {
+		int succ_num;
+		int fail_num;
+		String testError;
+		synchronized (this) {
+			if (!counterChanged) {
+				return;
+			}
+			succ_num = this.succNum;
+			fail_num = this.failNum;
+			testError = this.testError;
+			counterChanged = false;
+		}
 
+		Connection conn = null;
 		PreparedStatement stmt = null;
 		String sql;
-		ResultSet rs = null;
-
-		int executed_num = 0;
-
-		long endTime = System.currentTimeMillis();
-		Timestamp d = new Timestamp(endTime);
-
-		// get fail number
-		int fail_num = 0;
-		int succ_num = 0;
-		String testError = null;
-		try {
-			conn = ds.getConnection();
-			sql = "select success_num, fail_num,test_error from shell_main where main_id=?";
-			stmt = conn.prepareStatement(sql);
-			stmt.setInt(1, task_id);
-			rs = stmt.executeQuery();
-			rs.next();
-			succ_num = rs.getInt(1);
-			fail_num = rs.getInt(2);
-			testError = rs.getString(3);
-			rs.close();
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			close(rs);
-			close(stmt);
-		}
-
-		if (newSucc) {
-			succ_num = succ_num + 1;
-		} else {
-			fail_num = fail_num + 1;
-		}
-
-		if (newCore) {
-			testError = "Y";
-		} else {
-			testError = testError == null || testError.trim().equals("Y") == false ? "N" : "Y";
-		}
-
-		executed_num = fail_num + succ_num;
 
+		Timestamp d = new Timestamp(System.currentTimeMillis());
+		int executed_num = fail_num + succ_num;
 		float execute_rate = tbdNum <= 0 ? 0 : (float) executed_num / (float) tbdNum * 100;
+		float success_rate = tbdNum <= 0 || executed_num == 0 ? 0 : (float) succ_num / (float) executed_num * 100;
 
 		try {
-			float success_rate = tbdNum <= 0 ? 0 : (float) succ_num / (float) executed_num * 100;
-
+			conn = ds.getConnection();
 			sql = "update shell_main set success_num=?, fail_num=?, end_time=?, test_rate=?, success_rate=?, elapse_time=(?-start_time), test_error=? where main_id=?";
 			stmt = conn.prepareStatement(sql);
 			stmt.setInt(1, succ_num);
@@ -216,9 +223,40 @@ public class FeedbackDB implements Feedback {
 			stmt.setString(7, testError);
 			stmt.setInt(8, task_id);
 			stmt.executeUpdate();
+		} catch (SQLException e) {
+			synchronized (this) {
+				counterChanged = true;
+			}
+			throw e;
+		} finally {
+			close(stmt);
+			close(conn);
+		}
+	}
+
+	/**
+	 * load the counters of shell_main for continue mode.
+	 */
+	private void loadShellMain() {
+		Connection conn = null;
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		try {
+			conn = ds.getConnection();
+			stmt = conn.prepareStatement("select success_num, fail_num, test_error from shell_main where main_id=?");
+			stmt.setInt(1, task_id);
+			rs = stmt.executeQuery();
+			if (rs.next()) {
+				synchronized (this) {
+					succNum = rs.getInt(1);
+					failNum = rs.getInt(2);
+					testError = rs.getString(3);
+				}
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
+			close(rs);
 			close(stmt);
 			close(conn);
 		}
@@ -316,90 +354,289 @@ public class FeedbackDB implements Feedback {
 
 	@Override
 	public void onTestCaseStopEvent(String testCase, boolean flag, long elapseTime, String resultCont, String envIdentify, boolean isTimeOut, boolean hasCore, String skippedType, int retryCount) {
+		boolean needSave = context.isSkipToSaveSuccCase() == false || flag == false;
+		boolean needCount = skippedType.equals(Constants.SKIP_TYPE_NO);
+		if (needSave || needCount) {
+			addItem(new ItemRecord(needSave ? "shell_items" : null, needCount, testCase, flag, elapseTime, resultCont, envIdentify, isTimeOut, hasCore, skippedType, retryCount));
+		}
+	}
 
-		if (context.isSkipToSaveSuccCase() == false || flag == false) {
-			Connection conn = null;
-			int resultContSize = 0;
-
-			PreparedStatement stmt = null;
-			String sql;
-
-			long caseStopTime = System.currentTimeMillis();
-			Timestamp d = new Timestamp(caseStopTime);
-			if (resultCont != null) {
-				resultContSize = resultCont.length();
-				if (resultContSize > MAX_CONTENT_SIZE) {
-					String resultContPrefix = resultCont.substring(0, MAX_CONTENT_SIZE / 2);
-					String resultContSuffer = resultCont.substring(resultContSize - MAX_CONTENT_SIZE / 2, resultContSize);
-					resultCont = resultContPrefix + System.getProperty("line.separator") + "********** THE CONTENT LENGTH IS" + resultContSize + "(TRIMMED) **********"
-							+ System.getProperty("line.separator") + resultContSuffer;
-				}
+	@Override
+	public void onTestCaseStopEventForRetry(String testCase, boolean flag, long elapseTime, String resultCont, String envIdentify, boolean isTimeOut, boolean hasCore, String skippedType,
+			int retryCount) {
+		addItem(new ItemRecord("shell_retry_log", false, testCase, flag, elapseTime, resultCont, envIdentify, isTimeOut, hasCore, skippedType, retryCount));
+	}
+
+	/**
+	 * put the item into the queue of the writer thread. It only blocks when
+	 * the queue is full.
+	 */
+	private void addItem(ItemRecord item) {
+		synchronized (this) {
+			if (writer == null) {
+				writer = new Thread(new Runnable() {
+					public void run() {
+						writeItems();
+					}
+				}, "FeedbackDB-writer");
+				writer.setDaemon(true);
+				writer.start();
 			}
+		}
+		try {
+			itemQueue.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-			sql = "insert into shell_items(main_id, case_file, env_node, elapse_time, test_result, is_timeout, has_core, result_cont, end_time, is_skipped, retry_count) values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private void writeItems() {
+		ArrayList<ItemRecord> batch = new ArrayList<ItemRecord>();
+		long lastFlushTime = System.currentTimeMillis();
+		int retry = 0;
+		while (true) {
+			boolean stopping = writerStopped;
+			if (batch.isEmpty()) {
+				try {
+					ItemRecord item = itemQueue.poll(1, TimeUnit.SECONDS);
+					if (item != null) {
+						batch.add(item);
+						itemQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
+					}
+				} catch (InterruptedException e) {
+					stopping = true;
+				}
+			}
 
-			try {
-				conn = ds.getConnection();
+			if (batch.size() > 0) {
+				try {
+					insertItems(batch);
+					countItems(batch);
+					batch.clear();
+					retry = 0;
+				} catch (Exception e) {
+					if (!stopping && isConnectionError(e) && retry < MAX_WRITE_RETRY) {
+						// the database is not available, keep the batch and
+						// try again later
+						retry++;
+						System.out.println("[WARN] database is not available, retry " + retry + "/" + MAX_WRITE_RETRY + ": " + e.getMessage());
+						CommonUtils.sleep(WRITE_RETRY_INTERVAL);
+					} else {
+						e.printStackTrace();
+						insertItemsOneByOne(batch);
+						countItems(batch);
+						batch.clear();
+						retry = 0;
+					}
+				}
+			}
 
-				stmt = conn.prepareStatement(sql);
-				stmt.setInt(1, task_id);
-				stmt.setString(2, testCase);
-				stmt.setString(3, envIdentify);
-				stmt.setDouble(4, elapseTime);
-				if (skippedType.equals(Constants.SKIP_TYPE_NO)) {
-					stmt.setString(5, (flag ? "OK" : "NOK"));
-				} else {
-					stmt.setString(5, "");
+			long now = System.currentTimeMillis();
+			if (stopping || now - lastFlushTime >= MAIN_FLUSH_INTERVAL) {
+				try {
+					updateShellMain();
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
-				stmt.setString(6, (isTimeOut ? "Y" : "N"));
-				stmt.setString(7, (hasCore ? "Y" : "N"));
-				stmt.setString(8, resultCont);
-				stmt.setTimestamp(9, d);
-				stmt.setString(10, skippedType);
-				stmt.setInt(11, retryCount);
-				stmt.executeUpdate();
+				lastFlushTime = now;
+			}
+			if (stopping && itemQueue.isEmpty()) {
+				break;
+			}
+		}
+	}
 
+	/**
+	 * insert the items one by one, the items which fail are logged and
+	 * dropped.
+	 */
+	private void insertItemsOneByOne(List<ItemRecord> batch) {
+		ArrayList<ItemRecord> one = new ArrayList<ItemRecord>(1);
+		for (ItemRecord item : batch) {
+			if (item.table == null) {
+				continue;
+			}
+			one.clear();
+			one.add(item);
+			try {
+				insertItems(one);
 			} catch (Exception e) {
-				e.printStackTrace();
-			} finally {
-				close(stmt);
-				close(conn);
+				System.out.println("[ERROR] fail to save test result into " + item.table + " (" + item.testCase + "): " + e.getMessage());
 			}
 		}
+	}
 
-		if (skippedType.equals(Constants.SKIP_TYPE_NO)) {
-			updateShellMain(flag, hasCore);
+	private static boolean isConnectionError(Throwable e) {
+		while (e != null) {
+			if (e instanceof SQLException) {
+				String state = ((SQLException) e).getSQLState();
+				if (state != null && state.startsWith("08")) {
+					return true;
+				}
+			}
+			if (e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException || e instanceof SocketException) {
+				return true;
+			}
+			e = e.getCause();
 		}
+		return false;
 	}
 
-	@Override
-	public void onTestCaseStopEventForRetry(String testCase, boolean flag, long elapseTime, String resultCont, String envIdentify, boolean isTimeOut, boolean hasCore, String skippedType,
-			int retryCount) {
+	/**
+	 * insert a batch of items in one transaction.
+	 */
+	private void insertItems(List<ItemRecord> batch) throws Exception {
 		Connection conn = null;
-		int resultContSize = 0;
-
-		PreparedStatement stmt = null;
-		String sql;
-
-		long caseStopTime = System.currentTimeMillis();
-		Timestamp d = new Timestamp(caseStopTime);
-		if (resultCont != null) {
-			resultContSize = resultCont.length();
-			if (resultContSize > MAX_CONTENT_SIZE) {
-				String resultContPrefix = resultCont.substring(0, MAX_CONTENT_SIZE / 2);
-				String resultContSuffer = resultCont.substring(resultContSize - MAX_CONTENT_SIZE / 2, resultContSize);
-				resultCont = resultContPrefix + System.getProperty("line.separator") + "********** THE CONTENT LENGTH IS" + resultContSize + "(TRIMMED) **********"
-						+ System.getProperty("line.separator") + resultContSuffer;
+		PreparedStatement itemStmt = null;
+		PreparedStatement retryStmt = null;
+		try {
+			conn = ds.getConnection();
+		} catch (SQLException e) {
+			// fail to get a connection, the database is not available
+			throw new SQLRecoverableException(e.getMessage(), e.getSQLState(), e);
+		}
+		try {
+			conn.setAutoCommit(false);
+			for (ItemRecord item : batch) {
+				if (item.table == null) {
+					continue;
+				}
+				PreparedStatement stmt;
+				if (item.table.equals("shell_items")) {
+					if (itemStmt == null) {
+						itemStmt = conn.prepareStatement(getInsertItemSql("shell_items"));
+					}
+					stmt = itemStmt;
+				} else {
+					if (retryStmt == null) {
+						retryStmt = conn.prepareStatement(getInsertItemSql("shell_retry_log"));
+					}
+					stmt = retryStmt;
+				}
+				item.bind(stmt, task_id);
+				stmt.addBatch();
 			}
+			if (itemStmt != null) {
+				itemStmt.executeBatch();
+			}
+			if (retryStmt != null) {
+				retryStmt.executeBatch();
+			}
+			conn.commit();
+		} catch (Exception e) {
+			try {
+				if (conn != null) {
+					conn.rollback();
+				}
+			} catch (Exception e1) {
+			}
+			throw e;
+		} finally {
+			close(itemStmt);
+			close(retryStmt);
+			if (conn != null) {
+				try {
+					conn.setAutoCommit(true);
+				} catch (Exception e) {
+				}
+			}
+			close(conn);
 		}
+	}
 
-		sql = "insert into shell_retry_log(main_id, case_file, env_node, elapse_time, test_result, is_timeout, has_core, result_cont, end_time, is_skipped, retry_count) values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	/**
+	 * count the items as the test results, whether they are saved or not.
+	 */
+	private void countItems(List<ItemRecord> batch) {
+		synchronized (this) {
+			for (ItemRecord item : batch) {
+				if (!item.needCount) {
+					continue;
+				}
+				if (item.flag) {
+					succNum++;
+				} else {
+					failNum++;
+				}
+				if (item.hasCore) {
+					testError = "Y";
+				} else {
+					testError = testError == null || testError.trim().equals("Y") == false ? "N" : "Y";
+				}
+				counterChanged = true;
+			}
+		}
+	}
 
+	/**
+	 * wait until all items are written and shell_main is updated.
+	 */
+	private void stopWriter() {
+		Thread t;
+		synchronized (this) {
+			t = writer;
+			writerStopped = true;
+		}
+		if (t == null) {
+			return;
+		}
 		try {
-			conn = ds.getConnection();
+			t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-			stmt = conn.prepareStatement(sql);
-			stmt.setInt(1, task_id);
+	private static String getInsertItemSql(String table) {
+		return "insert into " + table + "(main_id, case_file, env_node, elapse_time, test_result, is_timeout, has_core, result_cont, end_time, is_skipped, retry_count) values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	}
+
+	private String trimResultCont(String resultCont) {
+		if (resultCont == null) {
+			return null;
+		}
+		int resultContSize = resultCont.length();
+		if (resultContSize > MAX_CONTENT_SIZE) {
+			String resultContPrefix = resultCont.substring(0, MAX_CONTENT_SIZE / 2);
+			String resultContSuffer = resultCont.substring(resultContSize - MAX_CONTENT_SIZE / 2, resultContSize);
+			resultCont = resultContPrefix + System.getProperty("line.separator") + "********** THE CONTENT LENGTH IS" + resultContSize + "(TRIMMED) **********"
+					+ System.getProperty("line.separator") + resultContSuffer;
+		}
+		return resultCont;
+	}
+
+	private class ItemRecord {
+		String table;
+		boolean needCount;
+		String testCase;
+		boolean flag;
+		long elapseTime;
+		String resultCont;
+		String envIdentify;
+		boolean isTimeOut;
+		boolean hasCore;
+		String skippedType;
+		int retryCount;
+		Timestamp endTime;
+
+		ItemRecord(String table, boolean needCount, String testCase, boolean flag, long elapseTime, String resultCont, String envIdentify, boolean isTimeOut, boolean hasCore,
+				String skippedType, int retryCount) {
+			this.table = table;
+			this.needCount = needCount;
+			this.testCase = testCase;
+			this.flag = flag;
+			this.elapseTime = elapseTime;
+			this.resultCont = table == null ? null : trimResultCont(resultCont);
+			this.envIdentify = envIdentify;
+			this.isTimeOut = isTimeOut;
+			this.hasCore = hasCore;
+			this.skippedType = skippedType;
+			this.retryCount = retryCount;
+			this.endTime = new Timestamp(System.currentTimeMillis());
+		}
+
+		void bind(PreparedStatement stmt, int taskId) throws SQLException {
+			stmt.setInt(1, taskId);
 			stmt.setString(2, testCase);
 			stmt.setString(3, envIdentify);
 			stmt.setDouble(4, elapseTime);
@@ -411,16 +648,9 @@ public class FeedbackDB implements Feedback {
 			stmt.setString(6, (isTimeOut ? "Y" : "N"));
 			stmt.setString(7, (hasCore ? "Y" : "N"));
 			stmt.setString(8, resultCont);
-			stmt.setTimestamp(9, d);
+			stmt.setTimestamp(9, endTime);
 			stmt.setString(10, skippedType);
 			stmt.setInt(11, retryCount);
-			stmt.executeUpdate();
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			close(stmt);
-			close(conn);
 		}
 	}
 
@@ -524,4 +754,53 @@ public class FeedbackDB implements Feedback {
 	public void onStopEnvEvent(String envIdentify) {
 		// TODO Auto-generated method stub
 	}
+
+	@Override
+	public Map<String, Long> getCaseElapseTimes() {
+		HashMap<String, Long> map = new HashMap<String, Long>();
+		Connection conn = null;
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		try {
+			// in continue mode cases are dispatched before the task is resumed
+			int currTaskId = task_id;
+			if (currTaskId == 0 && context.isContinueMode()) {
+				try {
+					currTaskId = readContinueTaskId();
+				} catch (Exception e) {
+					currTaskId = -1;
+				}
+			}
+
+			conn = ds.getConnection();
+			int lastTaskId = -1;
+			stmt = conn.prepareStatement("select max(main_id) from shell_main where category=? and os=? and main_id<>?");
+			stmt.setString(1, context.getTestCategory());
+			stmt.setString(2, context.getTestPlatform());
+			stmt.setInt(3, currTaskId);
+			rs = stmt.executeQuery();
+			if (rs.next()) {
+				lastTaskId = rs.getInt(1);
+			}
+			close(rs);
+			close(stmt);
+
+			// the cases finished in current task (continue mode) are newer
+			stmt = conn.prepareStatement("select case_file, elapse_time from shell_items where main_id in (?, ?) and is_skipped=? order by main_id");
+			stmt.setInt(1, lastTaskId);
+			stmt.setInt(2, currTaskId);
+			stmt.setString(3, Constants.SKIP_TYPE_NO);
+			rs = stmt.executeQuery();
+			while (rs.next()) {
+				map.put(rs.getString(1), (long) rs.getDouble(2));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			close(rs);
+			close(stmt);
+			close(conn);
+		}
+		return map;
+	}
 }
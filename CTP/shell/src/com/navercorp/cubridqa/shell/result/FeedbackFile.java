@@ -26,10 +26,13 @@
 
 package com.navercorp.cubridqa.shell.result;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import com.jcraft.jsch.JSchException;
@@ -58,10 +61,44 @@ public class FeedbackFile implements Feedback {
 	int totalFailNum = 0;
 	int totalSkipNum = 0;
 
+	Map<String, Long> caseElapseTimes;
+
 	public FeedbackFile(Context context) {
 		logName = CommonUtils.concatFile(context.getCurrentLogDir(), "feedback.log");
 		statusLogName = CommonUtils.concatFile(context.getCurrentLogDir(), "test_status.data");
 		this.context = context;
+		// the log of last test is overwritten when task starts
+		this.caseElapseTimes = loadCaseElapseTimes();
+	}
+
+	private Map<String, Long> loadCaseElapseTimes() {
+		HashMap<String, Long> map = new HashMap<String, Long>();
+		if (!new File(logName).exists()) {
+			return map;
+		}
+		ArrayList<String> lines;
+		try {
+			lines = CommonUtils.getLineList(logName);
+		} catch (IOException e) {
+			return map;
+		}
+		// [OK]: <test case> <elapse time> <env>
+		for (String line : lines) {
+			if (!line.startsWith("[OK]") && !line.startsWith("[NOK]")) {
+				continue;
+			}
+			String[] items = line.trim().split("\\s+");
+			for (int i = 1; i < items.length - 1; i++) {
+				if (items[i].endsWith(".sh")) {
+					try {
+						map.put(items[i], Long.parseLong(items[i + 1]));
+					} catch (NumberFormatException e) {
+					}
+					break;
+				}
+			}
+		}
+		return map;
 	}
 
 	@Override
@@ -313,4 +350,9 @@ public class FeedbackFile implements Feedback {
 		}
 
 	}
+
+	@Override
+	public Map<String, Long> getCaseElapseTimes() {
+		return caseElapseTimes;
+	}
 }
@@ -26,6 +26,9 @@
 
 package com.navercorp.cubridqa.shell.result;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.navercorp.cubridqa.shell.main.Feedback;
 
 public class FeedbackNull implements Feedback {
@@ -121,4 +124,8 @@ public class FeedbackNull implements Feedback {
 
 	}
 
+	@Override
+	public Map<String, Long> getCaseElapseTimes() {
+		return new HashMap<String, Long>();
+	}
 }
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+
+package com.navercorp.cubridqa.shell.service;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * sample the test node locally for one monitor of the controller. It keeps
+ * the recent trace snapshots, queues only the changed lines and the
+ * timeouts, and kills the processes on the node itself once the case timeout
+ * is reached.
+ */
+public class MonitorAgent implements Runnable {
+
+	private final static int SAMPLE_INTERVAL = 1000;
+	private final static int MAX_SNAPSHOTS = 10;
+	private final static int MAX_EVENTS = 200;
+
+	// the timeout is only resolved while the controller keeps polling
+	private final static int LEASE_TIME = 10 * 1000;
+
+	// the agent stops itself once the controller is gone
+	private final static int EXPIRE_TIME = 6 * LEASE_TIME;
+
+	public final static String EVENT_TIMEOUT = "[TIMEOUT]";
+	public final static String EVENT_DELTA = "[DELTA]";
+
+	ShellServiceImpl service;
+	String monitorId;
+	String user;
+	String traceScripts;
+	int traceInterval;
+	String killScripts;
+
+	LinkedList<String> snapshots = new LinkedList<String>();
+	LinkedList<String> events = new LinkedList<String>();
+	int droppedEvents = 0;
+
+	String caseKey = null;
+	long deadline = -1;
+	boolean timeoutResolved = false;
+	long lastPollTime;
+	long lastTraceTime = 0;
+
+	volatile boolean stopped = false;
+	Thread sampler;
+
+	public MonitorAgent(ShellServiceImpl service, String monitorId, String user, String traceScripts, int traceIntervalSecs, String killScripts) {
+		this.service = service;
+		this.monitorId = monitorId;
+		this.user = user;
+		this.traceScripts = traceScripts;
+		this.traceInterval = Math.max(1, traceIntervalSecs) * 1000;
+		this.killScripts = killScripts;
+		this.lastPollTime = System.currentTimeMillis();
+	}
+
+	public void start() {
+		sampler = new Thread(this, "monitor-agent");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	/**
+	 * tell the current case and get the queued events.
+	 * 
+	 * @param caseKey
+	 *            null if no case is running.
+	 * @param remainingMillis
+	 *            time left before the case timeout, or -1 if no timeout.
+	 */
+	public synchronized String[] poll(String caseKey, long remainingMillis) {
+		long now = System.currentTimeMillis();
+		this.lastPollTime = now;
+
+		if (caseKey == null) {
+			this.caseKey = null;
+			this.deadline = -1;
+		} else if (!caseKey.equals(this.caseKey)) {
+			this.caseKey = caseKey;
+			this.deadline = remainingMillis < 0 ? -1 : now + remainingMillis;
+			this.timeoutResolved = false;
+		}
+
+		if (droppedEvents > 0) {
+			events.addFirst(EVENT_DELTA + " dropped " + droppedEvents + " events");
+			droppedEvents = 0;
+		}
+		String[] result = events.toArray(new String[events.size()]);
+		events.clear();
+		return result;
+	}
+
+	public void close() {
+		stopped = true;
+		if (sampler != null) {
+			sampler.interrupt();
+		}
+	}
+
+	public void run() {
+		while (!stopped) {
+			if (isExpired()) {
+				System.out.println("expire monitor " + monitorId + ", not polled for " + EXPIRE_TIME + " ms (" + new java.util.Date() + ")");
+				service.removeMonitor(monitorId, this);
+				break;
+			}
+			try {
+				sampleOnce();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			try {
+				Thread.sleep(SAMPLE_INTERVAL);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+	private synchronized boolean isExpired() {
+		return System.currentTimeMillis() - lastPollTime > EXPIRE_TIME;
+	}
+
+	private void sampleOnce() {
+		long now = System.currentTimeMillis();
+		String timeoutCase = null;
+
+		synchronized (this) {
+			if (killScripts != null && caseKey != null && deadline > 0 && now >= deadline && !timeoutResolved && now - lastPollTime <= LEASE_TIME) {
+				timeoutResolved = true;
+				timeoutCase = caseKey;
+			}
+		}
+
+		if (timeoutCase != null) {
+			String result = service.execLocal(user, killScripts, false, false);
+			StringBuilder event = new StringBuilder();
+			event.append(EVENT_TIMEOUT).append(" ").append(timeoutCase).append('\n');
+			event.append(result).append('\n');
+			synchronized (this) {
+				if (snapshots.size() > 0) {
+					event.append("--------------LAST SNAPSHOT---------------").append('\n');
+					event.append(snapshots.getLast());
+				}
+			}
+			addEvent(event.toString());
+		}
+
+		if (traceScripts != null && now - lastTraceTime >= traceInterval) {
+			lastTraceTime = now;
+			String snapshot = service.execLocal(user, traceScripts, false, false);
+			String previous;
+			synchronized (this) {
+				previous = snapshots.size() == 0 ? null : snapshots.getLast();
+				snapshots.add(snapshot);
+				if (snapshots.size() > MAX_SNAPSHOTS) {
+					snapshots.removeFirst();
+				}
+			}
+			String delta = previous == null ? snapshot : getDelta(previous, snapshot);
+			if (delta.length() > 0) {
+				addEvent(EVENT_DELTA + " " + new java.util.Date() + "\n" + delta);
+			}
+		}
+	}
+
+	private synchronized void addEvent(String event) {
+		events.add(event);
+		if (events.size() > MAX_EVENTS) {
+			events.removeFirst();
+			droppedEvents++;
+		}
+	}
+
+	/**
+	 * get the lines added to and removed from the previous snapshot.
+	 */
+	private static String getDelta(String previous, String current) {
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		Integer c;
+		for (String line : previous.split("\n")) {
+			c = counts.get(line);
+			counts.put(line, c == null ? 1 : c + 1);
+		}
+
+		StringBuilder added = new StringBuilder();
+		for (String line : current.split("\n")) {
+			c = counts.get(line);
+			if (c == null) {
+				added.append("+ ").append(line).append('\n');
+			} else if (c == 1) {
+				counts.remove(line);
+			} else {
+				counts.put(line, c - 1);
+			}
+		}
+
+		StringBuilder removed = new StringBuilder();
+		for (String line : previous.split("\n")) {
+			c = counts.get(line);
+			if (c != null) {
+				removed.append("- ").append(line).append('\n');
+				if (c == 1) {
+					counts.remove(line);
+				} else {
+					counts.put(line, c - 1);
+				}
+			}
+		}
+		return added.append(removed).toString();
+	}
+}
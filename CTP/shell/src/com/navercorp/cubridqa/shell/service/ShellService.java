@@ -33,4 +33,10 @@ public interface ShellService extends Remote {
 	public String exec(String user, String pwd, String scripts) throws Exception;
 
 	public String exec(String user, String pwd, String scripts, boolean pureWindows) throws Exception;
+
+	public boolean openMonitor(String user, String pwd, String monitorId, String traceScripts, int traceIntervalSecs, String killScripts) throws Exception;
+
+	public String[] pollMonitor(String user, String pwd, String monitorId, String caseKey, long remainingMillis) throws Exception;
+
+	public void closeMonitor(String user, String pwd, String monitorId) throws Exception;
 }
@@ -27,7 +27,9 @@
 package com.navercorp.cubridqa.shell.service;
 
 import java.io.File;
+import java.rmi.server.RemoteServer;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.HashMap;
 import java.util.Properties;
 
 import com.navercorp.cubridqa.common.ConfigParameterConstants;
@@ -42,6 +44,7 @@ public class ShellServiceImpl extends UnicastRemoteObject implements ShellServic
 	String requiredHosts;
 	String userHomePureWin;
 	String userHome;
+	HashMap<String, MonitorAgent> monitors = new HashMap<String, MonitorAgent>();
 
 	protected ShellServiceImpl(Properties props) throws Exception {
 		super();
@@ -82,55 +85,125 @@ public class ShellServiceImpl extends UnicastRemoteObject implements ShellServic
 	}
 
 	public String exec(String user, String pwd, String scripts, boolean pureWindows) throws Exception {
-		String clientHost = super.getClientHost();
+		String clientHost = RemoteServer.getClientHost();
 		System.out.println();
 		System.out.println("===========================================================");
 		System.out.println("host: " + clientHost + ", user:" + user + "(" + new java.util.Date() + ") (v20160804)");
-		String preScript;
 
-		if (requiredUser.equals(user) && requiredPwd.equals(pwd) && requiredHosts.indexOf("," + clientHost + ",") != -1) {
+		if (isAllowed(user, pwd, clientHost)) {
 			if (scripts.equals("PLEASE_RESTART_AGENT")) {
 				System.out.println("Service will restart. Quit.");
 				System.exit(0);
 			}
-			if (pureWindows) {
-				preScript = "set HOME=" + userHomePureWin + "\n\r";
-				preScript = preScript + "set USER=" + user + "\n\r";
-				preScript = preScript + "cd %HOME%" + "\n\r";
-
-			} else {
-				preScript = "export HOME=" + userHome + ";";
-				preScript = preScript + "export USER=" + user + ";";
-				preScript = preScript + "cd $HOME;";
-
-				String initPathforShell = System.getenv("init_path");
-				if (initPathforShell != null && initPathforShell.trim().equals("") == false) {
-					if (com.navercorp.cubridqa.common.CommonUtils.isWindowsPlatform()) {
-						initPathforShell = com.navercorp.cubridqa.common.CommonUtils.getLinuxStylePath(initPathforShell, true);
-						preScript = preScript + "export init_path=" + initPathforShell + "; ";
-					}
-				}
-				// preScript = preScript +
-				// "if  [ -f ~/.bash_profile ]; then . ~/.bash_profile; fi; ";
-			}
-
-			scripts = preScript + scripts;
-			System.out.println(scripts);
-			String result = LocalInvoker.exec(scripts, pureWindows, false);
-			int pos;
-			pos = result.lastIndexOf(com.navercorp.cubridqa.shell.common.ScriptInput.START_FLAG);
-			if (pos != -1) {
-				result = result.substring(pos + com.navercorp.cubridqa.shell.common.ScriptInput.START_FLAG.length());
-			}
-			pos = result.indexOf(com.navercorp.cubridqa.shell.common.ScriptInput.COMP_FLAG);
-			if (pos != -1) {
-				result = result.substring(0, pos);
-			}
+			String result = execLocal(user, scripts, pureWindows, true);
 			System.out.println("WELCOME");
-			return result.trim();
+			return result;
 		} else {
 			System.out.println("DENY");
 			return null;
 		}
 	}
+
+	public boolean openMonitor(String user, String pwd, String monitorId, String traceScripts, int traceIntervalSecs, String killScripts) throws Exception {
+		if (!isAllowed(user, pwd, RemoteServer.getClientHost())) {
+			return false;
+		}
+
+		MonitorAgent agent = new MonitorAgent(this, monitorId, user, traceScripts, traceIntervalSecs, killScripts);
+		MonitorAgent old;
+		synchronized (monitors) {
+			old = monitors.put(monitorId, agent);
+		}
+		if (old != null) {
+			old.close();
+		}
+		agent.start();
+		System.out.println("open monitor " + monitorId + " for " + user + " (" + new java.util.Date() + ")");
+		return true;
+	}
+
+	public String[] pollMonitor(String user, String pwd, String monitorId, String caseKey, long remainingMillis) throws Exception {
+		if (!isAllowed(user, pwd, RemoteServer.getClientHost())) {
+			return null;
+		}
+
+		MonitorAgent agent;
+		synchronized (monitors) {
+			agent = monitors.get(monitorId);
+		}
+		if (agent == null) {
+			throw new Exception("Not found monitor " + monitorId);
+		}
+		return agent.poll(caseKey, remainingMillis);
+	}
+
+	public void closeMonitor(String user, String pwd, String monitorId) throws Exception {
+		if (!isAllowed(user, pwd, RemoteServer.getClientHost())) {
+			return;
+		}
+
+		MonitorAgent agent;
+		synchronized (monitors) {
+			agent = monitors.remove(monitorId);
+		}
+		if (agent != null) {
+			agent.close();
+			System.out.println("close monitor " + monitorId + " (" + new java.util.Date() + ")");
+		}
+	}
+
+	/**
+	 * remove the monitor if it is still registered as the agent.
+	 */
+	void removeMonitor(String monitorId, MonitorAgent agent) {
+		synchronized (monitors) {
+			if (monitors.get(monitorId) == agent) {
+				monitors.remove(monitorId);
+			}
+		}
+	}
+
+	private boolean isAllowed(String user, String pwd, String clientHost) {
+		return requiredUser.equals(user) && requiredPwd.equals(pwd) && requiredHosts.indexOf("," + clientHost + ",") != -1;
+	}
+
+	String execLocal(String user, String scripts, boolean pureWindows, boolean showScripts) {
+		String preScript;
+		if (pureWindows) {
+			preScript = "set HOME=" + userHomePureWin + "\n\r";
+			preScript = preScript + "set USER=" + user + "\n\r";
+			preScript = preScript + "cd %HOME%" + "\n\r";
+
+		} else {
+			preScript = "export HOME=" + userHome + ";";
+			preScript = preScript + "export USER=" + user + ";";
+			preScript = preScript + "cd $HOME;";
+
+			String initPathforShell = System.getenv("init_path");
+			if (initPathforShell != null && initPathforShell.trim().equals("") == false) {
+				if (com.navercorp.cubridqa.common.CommonUtils.isWindowsPlatform()) {
+					initPathforShell = com.navercorp.cubridqa.common.CommonUtils.getLinuxStylePath(initPathforShell, true);
+					preScript = preScript + "export init_path=" + initPathforShell + "; ";
+				}
+			}
+			// preScript = preScript +
+			// "if  [ -f ~/.bash_profile ]; then . ~/.bash_profile; fi; ";
+		}
+
+		scripts = preScript + scripts;
+		if (showScripts) {
+			System.out.println(scripts);
+		}
+		String result = LocalInvoker.exec(scripts, pureWindows, false);
+		int pos;
+		pos = result.lastIndexOf(com.navercorp.cubridqa.shell.common.ScriptInput.START_FLAG);
+		if (pos != -1) {
+			result = result.substring(pos + com.navercorp.cubridqa.shell.common.ScriptInput.START_FLAG.length());
+		}
+		pos = result.indexOf(com.navercorp.cubridqa.shell.common.ScriptInput.COMP_FLAG);
+		if (pos != -1) {
+			result = result.substring(0, pos);
+		}
+		return result.trim();
+	}
 }
@@ -52,6 +52,8 @@ scenario_alias=""
 need_make_locale=""
 test_data_file=""
 interface_type=""
+parallel_workers=""
+db_shards=0
 alias ini="sh ${CTP_HOME}/bin/ini.sh"
 
 
@@ -84,6 +86,30 @@ if [ $# -eq 0 ];then
 fi
 
 
+function start_ini_resolver()
+{
+    #one JVM serves all following ini calls
+    ini_port_file=`mktemp /tmp/.ctp_ini.XXXXXX`
+    (sh ${CTP_HOME}/bin/ini.sh --serve $ini_port_file >/dev/null 2>&1 &)
+    for ((i=0; i<20; i++))
+    do
+         if [ -s "$ini_port_file" ];then
+              #the first line is the port, the second is the token
+              export CTP_INI_PORT=`sed -n 1p $ini_port_file`
+              export CTP_INI_TOKEN=`sed -n 2p $ini_port_file`
+              break
+         fi
+         sleep 0.5
+    done
+    trap stop_ini_resolver EXIT
+}
+
+function stop_ini_resolver()
+{
+    rm -f $ini_port_file
+    unset CTP_INI_PORT CTP_INI_TOKEN
+}
+
 function get_curr_timestamp()
 {
     cur=$(date +%s)
@@ -148,24 +174,32 @@ function do_init()
     touch $fileName
     log_filename=${log_dir}/${fileName}
 
-    scenario_repo_root=`ini -s sql ${config_file_main} scenario`
+    #read all sql parameters at once
+    eval "`ini -s sql --export --prefix=sql_conf_ ${config_file_main} scenario testcase_exclude_from_file cubrid_createdb_opts test_category need_make_locale data_file parallel_workers`"
+
+    scenario_repo_root=$sql_conf_scenario
     [ ! -d "$scenario_repo_root" -a ! -f "$scenario_repo_root" ] && echo "please make sure your scenario directory" && exit 1
 
-	testcase_exclude_file=`ini -s sql ${config_file_main} testcase_exclude_from_file`
-    cubrid_createdb_opts=`ini -s sql ${config_file_main} cubrid_createdb_opts`
+	testcase_exclude_file=$sql_conf_testcase_exclude_from_file
+    cubrid_createdb_opts=$sql_conf_cubrid_createdb_opts
 
-    scenario_alias=`ini -s sql ${config_file_main} test_category`
+    scenario_alias=$sql_conf_test_category
     if [ -z "$scenario_alias" ]
     then
 	     scenario_alias=${scenario_category}
     fi
 
-    need_make_locale=`ini -s sql ${config_file_main} need_make_locale`
+    need_make_locale=$sql_conf_need_make_locale
     if [ -z "$need_make_locale" ];then
          need_make_locale="yes"
     fi
   
-    test_data_file=`ini -s sql ${config_file_main} data_file` 
+    test_data_file=$sql_conf_data_file
+
+    parallel_workers=$sql_conf_parallel_workers
+    if [ -z "$parallel_workers" ] || ! [ "$parallel_workers" -ge 1 ] 2>/dev/null;then
+         parallel_workers=1
+    fi
 
     is_support_ha_mode=`cubrid|grep heartbeat|grep -v grep|wc -l`
     if [ $is_support_ha_mode -ne 0 ]
@@ -199,6 +233,9 @@ function clean_log_cores()
 
 function do_clean()
 {
+     #stop and delete database shards of parallel workers
+     delete_db_shards
+
      #stop process 
      stop_db $db_name
 
@@ -363,7 +400,14 @@ function config_cubrid_ha()
   	if [ "$cnt" -gt 0 ]
   	then	
   	     cubrid_ha_para=`ini -s "sql/cubrid_ha.conf" ${config_file_main} --separator="||"`
-  	     ini -s common -u "ha_db_list=$db_name||$cubrid_ha_para" $CUBRID/conf/cubrid_ha.conf
+  	     ha_db_list=$db_name
+  	     if [ "$interface_type" != "cci" ] && [ "$parallel_workers" -gt 1 ];then
+  	          for ((i=0; i<parallel_workers; i++))
+  	          do
+  	               ha_db_list=${ha_db_list},${db_name}_w${i}
+  	          done
+  	     fi
+  	     ini -s common -u "ha_db_list=$ha_db_list||$cubrid_ha_para" $CUBRID/conf/cubrid_ha.conf
   	     ha_mode_yn="yes"
   	fi
      fi
@@ -531,6 +575,62 @@ function delete_db()
       
 }
 
+function do_create_db_shards()
+{
+     # every parallel worker uses its own copy of the test database, since cases create and drop the same tables
+     if [ "$interface_type" == "cci" ] || [ "$parallel_workers" -le 1 ];then
+          return
+     fi
+
+     curDir=`pwd`
+     qa_db_xml_path=${CTP_HOME}/sql/configuration/Function_Db/${db_name}_qa.xml
+     for ((i=0; i<parallel_workers; i++))
+     do
+          shard_db=${db_name}_w${i}
+          echo "COPY $db_name DATABASE TO $shard_db..."
+          mkdir -p $cubrid_root_dir/databases/$shard_db
+          cd $cubrid_root_dir/databases/$shard_db
+          cubrid copydb -F `pwd` -L `pwd` $db_name $shard_db 2>&1 >> $log_filename
+          sed -e "s#<name>.*</name>#<name>$shard_db</name>#g" -e "s#:${db_name}:::</dburl>#:${shard_db}:::</dburl>#g" $qa_db_xml_path > ${CTP_HOME}/sql/configuration/Function_Db/${db_name}_qa_w${i}.xml
+     done
+     db_shards=$parallel_workers
+     cd $curDir
+}
+
+function start_db_shards()
+{
+     cnt=`cat $CUBRID/conf/cubrid.conf | grep -v "#" | grep ha_mode | grep -E 'on|yes' | wc -l `
+     for ((i=0; i<db_shards; i++))
+     do
+          shard_db=${db_name}_w${i}
+          echo "start database $shard_db"
+          if [ "$cnt" -gt 0 ]
+          then
+              cubrid hb start $shard_db 2>&1 >> $log_filename
+          else
+              cubrid server start $shard_db 2>&1 >> $log_filename
+          fi
+          (check_status $shard_db)
+     done
+}
+
+function delete_db_shards()
+{
+     curDir=`pwd`
+     if [ -d "$cubrid_root_dir/databases" ];then
+          cd $cubrid_root_dir/databases
+          for shard_db in `ls -d ${db_name}_w[0-9]* 2>/dev/null`
+          do
+               echo "delete database $shard_db"
+               cubrid server stop $shard_db 2>&1 > /dev/null
+               cubrid deletedb $shard_db 2>&1 >> $log_filename
+               rm -rf $shard_db
+          done
+     fi
+     rm -f ${CTP_HOME}/sql/configuration/Function_Db/${db_name}_qa_w[0-9]*.xml
+     cd $curDir
+}
+
 function restart_broker()
 {
      echo "restart broker..."        
@@ -700,6 +800,9 @@ function do_test()
      curDir=`pwd`
      #start  server
      start_db $db_name
+
+     #start database shards of parallel workers
+     start_db_shards
  
      #start broker
      restart_broker
@@ -757,6 +860,8 @@ function do_test()
 	  cd $curDir
 	  
      else   
+     	  export sql_parallel_workers=$parallel_workers
+     	  export sql_db_shards=$db_shards
      	  "$JAVA_HOME/bin/java" -Xms1024m -XX:+UseParallelGC -classpath "${CLASSPATH}${separator}${CPCLASSES}" com.navercorp.cubridqa.cqt.console.ConsoleAgent runCQT ${scenario_category} ${scenario_alias} ${cubrid_bits} $jdbc_config_file_ext $javaArgs 2>&1 |tee -a $log_filename 
           cd $curDir
      fi
@@ -859,6 +964,9 @@ EOF
 }
 
 
+#start ini resolver
+start_ini_resolver
+
 #init environment for testing
 do_init
 
@@ -871,6 +979,9 @@ do_configure
 #prepare db
 do_create_db
 
+#prepare database shards of parallel workers
+do_create_db_shards
+
 #run test
 do_test
 
@@ -36,6 +36,7 @@ import com.navercorp.cubridqa.cqt.console.bean.ProcessMonitor;
 import com.navercorp.cubridqa.cqt.console.bean.Summary;
 import com.navercorp.cubridqa.cqt.console.bean.Test;
 import com.navercorp.cubridqa.cqt.console.bo.ConsoleBO;
+import com.navercorp.cubridqa.cqt.console.util.EnvGetter;
 import com.navercorp.cubridqa.cqt.console.util.LogUtil;
 import com.navercorp.cubridqa.cqt.console.util.PropertiesUtil;
 import com.navercorp.cubridqa.cqt.console.util.StdOutJob;
@@ -129,6 +130,24 @@ public class ConsoleAgent {
 				System.err.println("There is an exception " + "when getting variable 'qaview' from local.properties:  " + "\n" + e.getMessage());
 			}
 
+			// set parallel workers and database shards from sql.conf (exported by run.sh)
+			String parallelWorkers = EnvGetter.getenv("sql_parallel_workers");
+			if (parallelWorkers != null && parallelWorkers.length() > 0) {
+				try {
+					test.setParallelWorkers(Integer.parseInt(parallelWorkers));
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid value of parallel_workers: " + parallelWorkers);
+				}
+			}
+			String dbShards = EnvGetter.getenv("sql_db_shards");
+			if (dbShards != null && dbShards.length() > 0) {
+				try {
+					test.setDbShards(Integer.parseInt(dbShards));
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid value of database shards: " + dbShards);
+				}
+			}
+
 			String testOs = SystemUtil.getOS();
 			if (comefrom == COME_FROM_CQT_32) {
 				test.setVersion("32bits");
@@ -57,6 +57,12 @@ public class CaseResult {
 
 	private String result;
 
+	private String resultFile;
+
+	private String resultDigest;
+
+	private String mismatchInfo;
+
 	private boolean isSuccessFul = true;
 	
 	private boolean hasCore = false;
@@ -79,6 +85,46 @@ public class CaseResult {
 		this.result = result;
 	}
 
+	/**
+	 * get the file which the result was written to while the case was
+	 * running.
+	 * 
+	 * @return null if the result was not written to file.
+	 */
+	public String getResultFile() {
+		return resultFile;
+	}
+
+	public void setResultFile(String resultFile) {
+		this.resultFile = resultFile;
+	}
+
+	/**
+	 * get the digest of the result file computed while the case was running.
+	 * 
+	 * @return null if the result was not written to file.
+	 */
+	public String getResultDigest() {
+		return resultDigest;
+	}
+
+	public void setResultDigest(String resultDigest) {
+		this.resultDigest = resultDigest;
+	}
+
+	/**
+	 * get where the result first differs from the answer.
+	 * 
+	 * @return null if the result is the same as the answer.
+	 */
+	public String getMismatchInfo() {
+		return mismatchInfo;
+	}
+
+	public void setMismatchInfo(String mismatchInfo) {
+		this.mismatchInfo = mismatchInfo;
+	}
+
 	public String getResultDir() {
 		return resultDir;
 	}
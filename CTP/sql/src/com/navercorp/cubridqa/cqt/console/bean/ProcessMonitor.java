@@ -52,7 +52,7 @@ public class ProcessMonitor {
 	private int completeFile;
 	private int failedFile;
 	private int allFile;
-	private int currentstate = 3;
+	private volatile int currentstate = 3;
 	private long currentprocessid;
 
 	public long getCurrentprocessid() {
@@ -178,6 +178,18 @@ public class ProcessMonitor {
 		this.completeFile = completeFile;
 	}
 
+	public synchronized void increaseSuccessFile() {
+		this.successFile++;
+	}
+
+	public synchronized void increaseFailedFile() {
+		this.failedFile++;
+	}
+
+	public synchronized void increaseCompleteFile() {
+		this.completeFile++;
+	}
+
 	public void doException() {
 
 		this.currentstate = this.Status_Stoped;
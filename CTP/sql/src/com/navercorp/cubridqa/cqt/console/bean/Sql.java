@@ -42,7 +42,7 @@ public class Sql {
 
 	private int type;
 
-	private String result = "";
+	private StringBuilder result = new StringBuilder();
 
 	private boolean isSuccessful = true;
 
@@ -123,11 +123,28 @@ public class Sql {
 	}
 
 	public String getResult() {
-		return result;
+		return result.toString();
 	}
 
 	public void setResult(String result) {
-		this.result = result;
+		this.result = new StringBuilder(result == null ? "" : result);
+	}
+
+	public void appendResult(CharSequence data) {
+		this.result.append(data);
+	}
+
+	/**
+	 * get the result without copying it.
+	 * 
+	 * @return
+	 */
+	public CharSequence getResultBuffer() {
+		return result;
+	}
+
+	public void clearResult() {
+		this.result = new StringBuilder();
 	}
 
 	public int getType() {
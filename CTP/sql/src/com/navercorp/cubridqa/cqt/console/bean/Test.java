@@ -27,7 +27,6 @@ package com.navercorp.cubridqa.cqt.console.bean;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
@@ -102,7 +101,7 @@ public class Test {
 
 	private String scenarioRootPath = "";
 	
-	private Map<String, List<File>> coreCaseMap = new HashMap<String, List<File>>();
+	private Map<String, List<File>> coreCaseMap = new Hashtable<String, List<File>>();
 	
 	private List<String> allCoreList = new ArrayList<String>();
 
@@ -281,6 +280,10 @@ public class Test {
 
 	private int sqlRunTime = 1;
 
+	private int parallelWorkers = 1;
+
+	private int dbShards = 0;
+
 	private int type = 0;
 
 	private boolean isDebug;
@@ -465,6 +468,22 @@ public class Test {
 		this.sqlRunTime = sqlRunTime;
 	}
 
+	public int getParallelWorkers() {
+		return parallelWorkers;
+	}
+
+	public void setParallelWorkers(int parallelWorkers) {
+		this.parallelWorkers = parallelWorkers;
+	}
+
+	public int getDbShards() {
+		return dbShards;
+	}
+
+	public void setDbShards(int dbShards) {
+		this.dbShards = dbShards;
+	}
+
 	public Set<String> getResultDirSet() {
 		return resultDirSet;
 	}
@@ -48,6 +48,10 @@ public class TestCaseSummary {
 
 	private static final String E_RESULT = "</result>";
 
+	private static final String S_MISMATCH = "<mismatch>";
+
+	private static final String E_MISMATCH = "</mismatch>";
+
 	private String caseFile;
 
 	private String answerFile;
@@ -56,6 +60,8 @@ public class TestCaseSummary {
 
 	private String testResult;
 
+	private String mismatch;
+
 	public String getCaseFile() {
 		return caseFile;
 	}
@@ -67,6 +73,9 @@ public class TestCaseSummary {
 		sb.append(FileUtil.AddSpace(5) + TestCaseSummary.S_ANSWER + this.answerFile + TestCaseSummary.E_ANSWER + System.getProperty("line.separator"));
 		sb.append(FileUtil.AddSpace(5) + TestCaseSummary.S_ELAPSETIME + this.elapseTime + TestCaseSummary.E_ELAPSETIME + System.getProperty("line.separator"));
 		sb.append(FileUtil.AddSpace(5) + TestCaseSummary.S_RESULT + this.testResult + TestCaseSummary.E_RESULT + System.getProperty("line.separator"));
+		if (this.mismatch != null) {
+			sb.append(FileUtil.AddSpace(5) + TestCaseSummary.S_MISMATCH + this.mismatch + TestCaseSummary.E_MISMATCH + System.getProperty("line.separator"));
+		}
 		sb.append(FileUtil.AddSpace(2) + TestCaseSummary.E_FAILLISTTAG + System.getProperty("line.separator"));
 		return sb.toString();
 	}
@@ -99,4 +108,12 @@ public class TestCaseSummary {
 		this.testResult = testResult;
 	}
 
+	public String getMismatch() {
+		return mismatch;
+	}
+
+	public void setMismatch(String mismatch) {
+		this.mismatch = mismatch;
+	}
+
 }
@@ -44,6 +44,7 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.navercorp.cubridqa.common.CaseHistory;
 import com.navercorp.cubridqa.common.coreanalyzer.AnalyzerMain;
 import com.navercorp.cubridqa.cqt.common.CommonUtils;
 import com.navercorp.cubridqa.cqt.console.Executor;
@@ -55,6 +56,9 @@ import com.navercorp.cubridqa.cqt.console.bean.Summary;
 import com.navercorp.cubridqa.cqt.console.bean.Test;
 import com.navercorp.cubridqa.cqt.console.bean.TestCaseSummary;
 import com.navercorp.cubridqa.cqt.console.dao.ConsoleDAO;
+import com.navercorp.cubridqa.cqt.console.util.AnswerComparator;
+import com.navercorp.cubridqa.cqt.console.util.AnswerDigestIndex;
+import com.navercorp.cubridqa.cqt.console.util.CaseResultWriter;
 import com.navercorp.cubridqa.cqt.console.util.CommonFileUtile;
 import com.navercorp.cubridqa.cqt.console.util.ConfigureUtil;
 import com.navercorp.cubridqa.cqt.console.util.CubridConnection;
@@ -100,6 +104,8 @@ public class ConsoleBO extends Executor {
 
 	private ConsoleDAO dao;
 
+	private AnswerDigestIndex answerIndex;
+
 	private boolean hasSql = false;
 
 	public ConsoleBO() {
@@ -322,6 +328,9 @@ public class ConsoleBO extends Executor {
 				test.setCaseFilter(filter);
 				test.setScenarioRootPath(file);
 				dao.addDb(db);
+				for (int shard = 0; shard < test.getDbShards(); shard++) {
+					dao.addDb(TestUtil.getShardDbId(db, shard));
+				}
 			}
 			String[] postFixes = TestUtil.getCaseFilePostFix(file);
 			TestUtil.getCaseFiles(test, file, test.getCaseFileList(), postFixes);
@@ -429,62 +438,43 @@ public class ConsoleBO extends Executor {
 			processMonitor.setAllFile(test.getCaseFileList().size());
 			processMonitor.setProcessName(test.getTestId());
 			processMonitor.setProcessDesc(TestUtil.getResultPreDir(test.getTestId()));
-			boolean endfile = false;
-			int currentCount = 0;
 			int totalCaseCount = caseFileList.size();
-			
-			for (int i = 0; i < totalCaseCount; i++) {
-				if (processMonitor.getCurrentstate() == processMonitor.Status_Stoping) {
-					break;
-				} else if (processMonitor.getCurrentstate() == processMonitor.Status_Starting) {
-					processMonitor.setCurrentstate(processMonitor.Status_Started);
-				}
-				endfile = i == totalCaseCount - 1;
-				String caseFile = (String) caseFileList.get(i);
-				currentCount++;
-				NumberFormat format = NumberFormat.getPercentInstance();
-				format.setMinimumFractionDigits(2);
-				float ratio = (float) currentCount / totalCaseCount * 100;
-				String completeRatio = format.format((ratio / 100.0));
-				printMessage("Testing " + caseFile + " ("+ currentCount + "/"+ totalCaseCount +" " + completeRatio + ")", true, false);
-				
-				CaseResult caseResult = test.getCaseResultFromMap(caseFile);
-				if (caseResult == null || !caseResult.isShouldRun()) {
-					processMonitor.setCompleteFile(processMonitor.getCompleteFile() + 1);
-					processMonitor.setFailedFile(processMonitor.getFailedFile() + 1);
-					continue;
-				}
+			int workerCount = Math.min(test.getParallelWorkers(), totalCaseCount);
+			loadAnswerIndex(test);
 
-				int testType = caseResult.getType();
-				processMonitor.setCurrentfiletype(testType);
-				executeSqlFile(test, caseResult);
-				processMonitor.setCompleteFile(processMonitor.getCompleteFile() + 1);
-				if (saveEveryone) {
-					saveTempResults(caseFile);
-					if (test.getType() == Test.TYPE_FUNCTION) {
-						if (test.getRunMode() == Test.MODE_RESULT || test.getRunMode() == Test.MODE_NO_RESULT) {
-							saveResults(caseFile);
-						} else if (test.getRunMode() == Test.MODE_MAKE_ANSWER) {
-							saveAnswers(caseFile);
-						}
+			if (workerCount > 1) {
+				executeInParallel(test, workerCount);
+			} else {
+				int currentCount = 0;
+				for (int i = 0; i < totalCaseCount; i++) {
+					if (processMonitor.getCurrentstate() == processMonitor.Status_Stoping) {
+						break;
+					} else if (processMonitor.getCurrentstate() == processMonitor.Status_Starting) {
+						processMonitor.setCurrentstate(processMonitor.Status_Started);
 					}
-					caseResult.setResult("");
-				}
-				
-				boolean isSucc = caseResult.isSuccessFul();
-				if(!isSucc){
-					List<File> coreFileList = CommonFileUtile.getCoreFiles(CubridUtil.getCubridPath(), test.getAllCoreList());
-					if (coreFileList != null && coreFileList.size() > 0) {
-							test.putCoreCaseIntoMap(caseFile, coreFileList);
-							caseResult.setHasCore(true);
+					String caseFile = (String) caseFileList.get(i);
+					currentCount++;
+					printMessage("Testing " + caseFile + " (" + currentCount + "/" + totalCaseCount + " " + getCompleteRatio(currentCount, totalCaseCount) + ")", true, false);
+
+					CaseResult caseResult = test.getCaseResultFromMap(caseFile);
+					if (caseResult == null || !caseResult.isShouldRun()) {
+						processMonitor.increaseCompleteFile();
+						processMonitor.increaseFailedFile();
+						continue;
+					}
+
+					int testType = caseResult.getType();
+					processMonitor.setCurrentfiletype(testType);
+					executeSqlFile(test, caseResult, -1, test.getConnIDList());
+					boolean isSucc = finishCase(test, caseFile, caseResult);
+					printMessage(isSucc ? " [OK]" : " [NOK]", false, true);
+					if (ErrorInterruptUtil.isCaseRunError(this, caseFile)) {
+						this.onMessage("[ERROR]: Run case interrupt error!");
+						break;
 					}
-				}
-				printMessage(isSucc?" [OK]": " [NOK]", false, true);
-				if (ErrorInterruptUtil.isCaseRunError(this, caseFile)) {
-					this.onMessage("[ERROR]: Run case interrupt error!");
-					break;
 				}
 			}
+			saveAnswerIndex();
 			if (processMonitor.getCurrentstate() == processMonitor.Status_Stoping)
 				return;
 			if ((test.getType() == Test.TYPE_FUNCTION)) {
@@ -508,6 +498,122 @@ public class ConsoleBO extends Executor {
 		}
 	}
 
+	/**
+	 * run the case files with several workers, each worker owns its own
+	 * connections and pulls the next case file from the shared queue.
+	 * 
+	 * @param test
+	 * @param workerCount
+	 * @throws InterruptedException
+	 */
+	private void executeInParallel(Test test, int workerCount) throws InterruptedException {
+		boolean useShards = test.getDbShards() > 0;
+		if (useShards) {
+			workerCount = Math.min(workerCount, test.getDbShards());
+		}
+		CaseQueue caseQueue = new CaseQueue(test.getCaseFileList(), useShards);
+		LogUtil.log(logId, "[parallel]workers:" + workerCount + ", shards:" + test.getDbShards());
+		System.out.println("Parallel Workers:" + workerCount + (useShards ? " (database per worker)" : ""));
+
+		List<CaseWorker> workerList = new ArrayList<CaseWorker>();
+		for (int i = 0; i < workerCount; i++) {
+			CaseWorker worker = new CaseWorker("CQT-Worker-" + i, i, caseQueue);
+			workerList.add(worker);
+			worker.start();
+		}
+
+		for (CaseWorker worker : workerList) {
+			worker.join();
+		}
+	}
+
+	/**
+	 * save the result of one executed case and update the monitor counters.
+	 * It may be called by several workers at the same time.
+	 * 
+	 * @param test
+	 * @param caseFile
+	 * @param caseResult
+	 * @return true if the case passed
+	 */
+	private boolean finishCase(Test test, String caseFile, CaseResult caseResult) {
+		processMonitor.increaseCompleteFile();
+		CaseHistory.getInstance("sql").add(caseFile, test.getDbBuild(), caseResult.getTotalTime());
+		if (saveEveryone) {
+			saveTempResults(caseFile);
+			if (test.getType() == Test.TYPE_FUNCTION) {
+				if (test.getRunMode() == Test.MODE_RESULT || test.getRunMode() == Test.MODE_NO_RESULT) {
+					saveResults(caseFile);
+				} else if (test.getRunMode() == Test.MODE_MAKE_ANSWER) {
+					saveAnswers(caseFile);
+				}
+			}
+			caseResult.setResult("");
+		}
+
+		boolean isSucc = caseResult.isSuccessFul();
+		if (!isSucc) {
+			List<File> coreFileList;
+			synchronized (test.getAllCoreList()) {
+				coreFileList = CommonFileUtile.getCoreFiles(CubridUtil.getCubridPath(), test.getAllCoreList());
+			}
+			if (coreFileList != null && coreFileList.size() > 0) {
+				test.putCoreCaseIntoMap(caseFile, coreFileList);
+				caseResult.setHasCore(true);
+			}
+		}
+		return isSucc;
+	}
+
+	/**
+	 * load the answer digest index and bring it up to date for the answers of
+	 * the cases to be compared.
+	 * 
+	 * @param test
+	 */
+	private void loadAnswerIndex(Test test) {
+		answerIndex = null;
+		if (test.getType() != Test.TYPE_FUNCTION || !saveEveryone || test.getScenarioRootPath() == null) {
+			return;
+		}
+		if (test.getRunMode() != Test.MODE_RESULT && test.getRunMode() != Test.MODE_NO_RESULT) {
+			return;
+		}
+
+		long startTime = System.currentTimeMillis();
+		AnswerDigestIndex index = new AnswerDigestIndex(AnswerDigestIndex.getIndexFileOfScenario(test.getScenarioRootPath()));
+		index.load();
+
+		List<String> answerFileList = new ArrayList<String>();
+		for (String caseFile : test.getCaseFileList()) {
+			CaseResult caseResult = test.getCaseResultFromMap(caseFile);
+			if (caseResult != null && caseResult.isShouldRun() && caseResult.getAnswerFile() != null) {
+				answerFileList.add(caseResult.getAnswerFile());
+			}
+		}
+		index.build(answerFileList, Math.max(test.getParallelWorkers(), Runtime.getRuntime().availableProcessors()));
+		answerIndex = index;
+		LogUtil.log(logId, "[time]loadAnswerIndex:" + (System.currentTimeMillis() - startTime));
+	}
+
+	private void saveAnswerIndex() {
+		if (answerIndex == null) {
+			return;
+		}
+		try {
+			answerIndex.save();
+		} catch (IOException e) {
+			LogUtil.log(logId, "fail to save answer index " + answerIndex.getIndexFile() + ": " + e.getMessage());
+		}
+	}
+
+	private String getCompleteRatio(int currentCount, int totalCaseCount) {
+		NumberFormat format = NumberFormat.getPercentInstance();
+		format.setMinimumFractionDigits(2);
+		float ratio = (float) currentCount / totalCaseCount * 100;
+		return format.format((ratio / 100.0));
+	}
+
 	/**
 	 * create the directory for test answer.
 	 * 
@@ -563,6 +669,10 @@ public class ConsoleBO extends Executor {
 	private void saveTempResults(String caseFile) {
 		CaseResult caseResult = (CaseResult) test.getCaseResultFromMap(caseFile);
 		if (caseResult.getType() == CaseResult.TYPE_SQL || caseResult.getType() == CaseResult.TYPE_GROOVY) {
+			if (caseResult.getResultFile() != null) {
+				// already written while running
+				return;
+			}
 			String caseDir = caseResult.getCaseDir();
 			String resultFile = caseDir + "/" + caseResult.getCaseName() + ".result";
 			FileUtil.writeToFile(resultFile, caseResult.getResult());
@@ -600,30 +710,41 @@ public class ConsoleBO extends Executor {
 	}
 
 	/**
-	 * save the result file .
+	 * save the result file. The workers call it in parallel, only the writes
+	 * to the shared summary are serialized.
 	 * 
 	 * 
 	 * @param caseFile
 	 */
-	private synchronized void saveResults(String caseFile) {
+	private void saveResults(String caseFile) {
 		CaseResult caseResult = (CaseResult) test.getCaseResultFromMap(caseFile);
 		if (!caseResult.isShouldRun()) {
 			return;
 		}
 		if (caseResult.getType() == CaseResult.TYPE_SQL || caseResult.getType() == CaseResult.TYPE_GROOVY) {
-			String result = caseResult.getResult();
-			String answer = FileUtil.readFile(caseResult.getAnswerFile());
-			result = result.replaceAll("\r", "").replaceAll("\n", "");
-			answer = answer.replaceAll("\r", "").replaceAll("\n", "");
+			AnswerComparator comparator = new AnswerComparator();
+			boolean isSame;
+			if (caseResult.getResultFile() != null) {
+				// the full comparison is only needed when the digests differ
+				String answerDigest = answerIndex == null ? null : answerIndex.getDigest(caseResult.getAnswerFile());
+				isSame = answerDigest != null && answerDigest.equals(caseResult.getResultDigest());
+				if (!isSame) {
+					isSame = comparator.compareFile(caseResult.getAnswerFile(), caseResult.getResultFile());
+				}
+			} else {
+				isSame = comparator.compare(caseResult.getAnswerFile(), caseResult.getResult());
+			}
 			TestCaseSummary fs = new TestCaseSummary();
 
-			if (!answer.equals(result)) {
+			if (!isSame) {
 				fs.setTestResult("fail");
+				fs.setMismatch(comparator.getMismatchInfo());
 				caseResult.setSuccessFul(false);
+				caseResult.setMismatchInfo(comparator.getMismatchInfo());
 				TestUtil.saveResult(caseResult, test.getCodeset());
-				processMonitor.setFailedFile(processMonitor.getFailedFile() + 1);
+				processMonitor.increaseFailedFile();
 			} else {
-				processMonitor.setSuccessFile(processMonitor.getSuccessFile() + 1);
+				processMonitor.increaseSuccessFile();
 				fs.setTestResult("success");
 			}
 
@@ -642,7 +763,10 @@ public class ConsoleBO extends Executor {
 				fs.setAnswerFile(StringUtil.replaceSlash(answerFileDir));
 				fs.setElapseTime(String.valueOf(caseResult.getTotalTime()));
 				TestUtil.copyCaseAnswerFile(caseResult);
-				FileUtil.writeDataToFileWithHandle(test.getFileHandle(), fs.toXmlString());
+				String summary = fs.toXmlString();
+				synchronized (this) {
+					FileUtil.writeDataToFileWithHandle(test.getFileHandle(), summary);
+				}
 			}
 
 		} else {
@@ -652,10 +776,10 @@ public class ConsoleBO extends Executor {
 			if (!isOk) {
 				caseResult.setSuccessFul(false);
 				TestUtil.saveResult(caseResult, TestUtil.DEFAULT_CODESET);
-				processMonitor.setFailedFile(processMonitor.getFailedFile() + 1);
+				processMonitor.increaseFailedFile();
 			} else {
 
-				processMonitor.setSuccessFile(processMonitor.getSuccessFile() + 1);
+				processMonitor.increaseSuccessFile();
 			}
 		}
 	}
@@ -721,8 +845,11 @@ public class ConsoleBO extends Executor {
 	private void saveAnswers(String caseFile) {
 		CaseResult caseResult = (CaseResult) test.getCaseResultFromMap(caseFile);
 		if (caseResult.getType() == CaseResult.TYPE_SQL || caseResult.getType() == CaseResult.TYPE_GROOVY) {
-			FileUtil.writeToFile(caseResult.getAnswerFile(), caseResult.getResult());
-
+			if (caseResult.getResultFile() != null) {
+				FileUtil.writeSQLFileIntoResultFolder(caseResult.getResultFile(), caseResult.getAnswerFile());
+			} else {
+				FileUtil.writeToFile(caseResult.getAnswerFile(), caseResult.getResult());
+			}
 		}
 	}
 
@@ -919,10 +1046,13 @@ public class ConsoleBO extends Executor {
 	 * 
 	 * @param test
 	 * @param caseResult
+	 * @param seq
+	 *            the connection sequence of the worker, -1 for the serial run.
+	 * @param connIDList
+	 *            the connections used by the worker.
 	 * @return
 	 */
-	private String executeSqlFile(Test test, CaseResult caseResult) {
-		ArrayList<Connection> ConnList = new ArrayList<Connection>();
+	private String executeSqlFile(Test test, CaseResult caseResult, int seq, Map<String, Object> connIDList) {
 		if (test == null || caseResult == null) {
 			return null;
 		}
@@ -931,15 +1061,44 @@ public class ConsoleBO extends Executor {
 		}
 
 		String caseFile = caseResult.getCaseFile();
-		StringBuilder result = new StringBuilder();
 		List<Sql> sqlList = parseSqlFile(caseFile, test);
 		if (sqlList == null) {
 			return null;
 		}
 
+		// the result is written to the temporary result file while running
+		CaseResultWriter result = null;
+		if (caseResult.getType() == CaseResult.TYPE_SQL || caseResult.getType() == CaseResult.TYPE_GROOVY) {
+			String resultFile = caseResult.getCaseDir() + "/" + caseResult.getCaseName() + ".result";
+			try {
+				result = new CaseResultWriter(resultFile, TestUtil.DEFAULT_CODESET);
+			} catch (IOException e) {
+				this.onMessage(e.getMessage());
+				LogUtil.log(logId, LogUtil.getExceptionMessage(e));
+				return null;
+			}
+			caseResult.setResult(null);
+			caseResult.setResultFile(resultFile);
+			caseResult.setResultDigest(null);
+		}
+
+		try {
+			return executeSqlFile(test, caseResult, sqlList, seq, connIDList, result);
+		} finally {
+			if (result != null) {
+				result.close();
+				caseResult.setResultDigest(result.getDigest());
+			}
+		}
+	}
+
+	private String executeSqlFile(Test test, CaseResult caseResult, List<Sql> sqlList, int seq, Map<String, Object> connIDList, CaseResultWriter result) {
+		ArrayList<Connection> ConnList = new ArrayList<Connection>();
+		String caseFile = caseResult.getCaseFile();
+
 		// clear connection id list for each sql file
-		if (!test.getConnIDList().isEmpty()) {
-			test.getConnIDList().clear();
+		if (!connIDList.isEmpty()) {
+			connIDList.clear();
 		}
 
 		for (int i = 0; i < test.getSqlRunTime(); i++) {
@@ -948,13 +1107,17 @@ public class ConsoleBO extends Executor {
 				return null;
 			}
 			try {
-				test.setDbId(test.getDbId(caseFile));
+				String dbId = test.getDbId(caseFile);
+				if (seq < 0) {
+					test.setDbId(dbId);
+				} else if (test.getDbShards() > 0) {
+					dbId = TestUtil.getShardDbId(dbId, seq);
+				}
 
-				String dbId = test.getDbId();
 				String connId = test.getConnId();
-				CubridConnection cubridConnection = dao.getCubridConnection(dbId, connId, test.getType());
+				CubridConnection cubridConnection = dao.getCubridConnection(dbId, connId, seq, test.getType());
 
-				test.getConnIDList().put(connId, cubridConnection);
+				connIDList.put(connId, cubridConnection);
 
 				// check if CQT need check server status when start each file
 				// test executing
@@ -981,9 +1144,9 @@ public class ConsoleBO extends Executor {
 
 					String thisConnId = sql.getConnId();
 					if (!thisConnId.equals("") && !thisConnId.equals(connId)) {
-						cubridConnection = dao.getCubridConnection(dbId, thisConnId, test.getType());
-						if (!test.getConnIDList().containsKey(thisConnId)) {
-							test.getConnIDList().put(thisConnId, cubridConnection);
+						cubridConnection = dao.getCubridConnection(dbId, thisConnId, seq, test.getType());
+						if (!connIDList.containsKey(thisConnId)) {
+							connIDList.put(thisConnId, cubridConnection);
 							// set connection reset for test
 							resetConnection(cubridConnection, test);
 						}
@@ -1057,16 +1220,17 @@ public class ConsoleBO extends Executor {
 							this.onMessage(message);
 						}
 					} else {
-						String message = "@" + test.getDbId() + "/" + test.getConnId() + ":" + sql.getScript();
+						String message = "@" + dbId + "/" + test.getConnId() + ":" + sql.getScript();
 						this.onMessage(message);
 						dao.execute(conn, sql, caseResult.isPrintQueryPlan());
 
-						if (i == 0) {
-							result.append("===================================================");
-							result.append(System.getProperty("line.separator"));
+						if (i == 0 && result != null) {
+							result.write("===================================================");
+							result.write(System.getProperty("line.separator"));
 
-							result.append(sql.getResult());
+							result.write(sql.getResultBuffer());
 						}
+						sql.clearResult();
 					}
 
 					cubridConnection.free();
@@ -1076,13 +1240,12 @@ public class ConsoleBO extends Executor {
 				caseResult.setTotalTime(totalTime);
 				caseResult.setSiteRunTimes(1);
 			} catch (Exception e) {
-				if (i == 0) {
-					result.append(e.getMessage() + System.getProperty("line.separator"));
+				if (i == 0 && result != null) {
+					result.write(e.getMessage() + System.getProperty("line.separator"));
 				}
 				this.onMessage(e.getMessage());
 			} finally {
 				if (i == 0) {
-					caseResult.setResult(result.toString());
 					caseResult.setSiteRunTimes(1);
 				}
 			}
@@ -1585,158 +1748,112 @@ public class ConsoleBO extends Executor {
 	}
 
 	/**
-	 * this inner class created by anson cheung,it used for execute sql
-	 * muti-thread
-	 * 
-	 * @author Administrator
-	 * 
+	 * the case files shared by the workers of a parallel run. When the
+	 * workers run on database shards, the case files of one directory are
+	 * handed out together so that they see the same shared setup.
 	 */
-	class MutiSqlEx extends Thread {
-		private Test test;
-		private int index;
-
-		private CaseResult caseResult;
+	class CaseQueue {
+		private List<List<String>> groupList = new ArrayList<List<String>>();
+		private int next = 0;
+		private int completed = 0;
+		private int size = 0;
+		private volatile boolean interrupted = false;
+
+		CaseQueue(List<String> caseFileList, boolean groupByDirectory) {
+			List<String> group = null;
+			String groupDir = null;
+			for (String caseFile : caseFileList) {
+				String dir = FileUtil.getDir(caseFile);
+				if (group == null || !groupByDirectory || !dir.equals(groupDir)) {
+					group = new ArrayList<String>();
+					groupList.add(group);
+					groupDir = dir;
+				}
+				group.add(caseFile);
+			}
+			this.size = caseFileList.size();
+		}
 
-		public void setTest(Test test) {
-			this.test = test;
+		synchronized List<String> nextGroup() {
+			if (interrupted || next >= groupList.size()) {
+				return null;
+			}
+			return groupList.get(next++);
 		}
 
-		public void setCaseResult(CaseResult caseResult) {
-			this.caseResult = caseResult;
+		synchronized int complete() {
+			return ++completed;
 		}
 
-		public CaseResult getCaseResult() {
-			return caseResult;
+		int size() {
+			return size;
 		}
 
-		private ConsoleBO bo;
+		boolean isInterrupted() {
+			return interrupted;
+		}
 
-		public void setBo(ConsoleBO bo) {
-			this.bo = bo;
+		void interrupt() {
+			this.interrupted = true;
 		}
+	}
 
-		public MutiSqlEx(String name) {
+	/**
+	 * the worker of a parallel run. It uses its own connection sequence, so
+	 * the workers never share a broker session. With database shards the
+	 * sequence also selects the database of the worker.
+	 */
+	class CaseWorker extends Thread {
+		private int index;
+		private CaseQueue caseQueue;
+		private Map<String, Object> connIDList = new Hashtable<String, Object>();
+
+		public CaseWorker(String name, int index, CaseQueue caseQueue) {
 			super(name);
+			this.index = index;
+			this.caseQueue = caseQueue;
 		}
 
 		@Override
 		public void run() {
-			List<Connection> ConnList = new ArrayList<Connection>();
-			if (test == null || caseResult == null || processMonitor.getCurrentstate() == processMonitor.Status_Stoping || processMonitor.getCurrentstate() == processMonitor.Status_Stoping) {
-				return;
-			}
-			String caseFile = caseResult.getCaseFile();
-			StringBuilder result = new StringBuilder();
-			List<Sql> sqlList = parseSqlFile(caseFile, test);
-
-			String dbId = test.getDbId();
-			String connId = test.getConnId();
-			CubridConnection cubridConnection = dao.getCubridConnection(dbId, connId, test.getType());
-
-			// check if CQT need check server status when start each file test
-			// executing
-			if (test.isNeedCheckServerStatus()) {
-				checkServerStatus(cubridConnection);
-			}
-
-			// set db charset for test
-			resetConnection(cubridConnection, test);
-
-			if (sqlList == null) {
-				return;
-			}
-			try {
-				test.setDbId(test.getDbId(caseFile));
-				long startTime = System.currentTimeMillis();
-				for (int k = 0; k < sqlList.size(); k++) {
-					if (processMonitor.getCurrentstate() == processMonitor.Status_Stoping || processMonitor.getCurrentstate() == processMonitor.Status_Stoping) {
+			List<String> group;
+			while ((group = caseQueue.nextGroup()) != null) {
+				for (String caseFile : group) {
+					if (caseQueue.isInterrupted() || processMonitor.getCurrentstate() == processMonitor.Status_Stoping) {
 						return;
+					} else if (processMonitor.getCurrentstate() == processMonitor.Status_Starting) {
+						processMonitor.setCurrentstate(processMonitor.Status_Started);
 					}
-					Sql sql = (Sql) sqlList.get(k);
-					if (sql == null) {
-						continue;
-					}
-
-					String script = sql.getScript();
-					// String dbId = test.getDbId();
-					// String connId = test.getConnId();
-					String ThreadConnId = connId;
-					String thisConnId = sql.getConnId();
-					if (!thisConnId.equals("") && !thisConnId.equals(connId)) {
-						ThreadConnId = thisConnId;
-						cubridConnection = dao.getCubridConnection(dbId, ThreadConnId, index, test.getType());
-						resetConnection(cubridConnection, test);
-					}
-
-					cubridConnection.isAvlible();
-					Connection conn = cubridConnection.getConn();
-					ConnList.add(conn);
-					boolean isOn = isSetAutoCommitOn(script);
-					boolean isOff = isSetAutoCommitOff(script);
-					boolean isHoldCasOn = isHoldCASON(script);
-					boolean isHoldCasOff = isHoldCASOFF(script);
-
-					if (isOn) {
-						conn.setAutoCommit(isOn);
-						String message = "@" + test.getConnId() + ": autocommit " + isOn;
-						bo.onMessage("[THREAD:" + index + "]" + message);
-					} else if (isOff) {
-						conn.setAutoCommit(!isOff);
-						String message = "@" + test.getConnId() + ": autocommit " + !isOff;
-						bo.onMessage("[THREAD:" + index + "]" + message);
-					} else if (isHoldCasOn) {
-						try {
-							String message = "@" + test.getConnId() + ": hold cas " + isHoldCasOn;
-
-							Method method = conn.getClass().getMethod("setCASChangeMode", new Class[] { int.class });
-							method.invoke(conn, new Object[] { CUBRIDConnection.CAS_CHANGE_MODE_KEEP });
-
-							bo.onMessage("--- hold cas -- " + isHoldCasOn);
-						} catch (Exception e) {
-							String message = "Exception: the current version can't support hold cas!";
-							bo.onMessage(message);
-						}
-					} else if (isHoldCasOff) {
-						try {
-							String message = "@" + test.getConnId() + ": hold cas " + isHoldCasOff;
-							Method method = conn.getClass().getMethod("setCASChangeMode", new Class[] { int.class });
-							method.invoke(conn, new Object[] { CUBRIDConnection.CAS_CHANGE_MODE_AUTO });
-							bo.onMessage("--- hold cas -- " + isHoldCasOff);
-						} catch (Exception e) {
-							String message = "Exception: the current version can't support hold cas!";
-							bo.onMessage(message);
-						}
-					} else {
-						//System.out.println("--- use default autocommit -- " + conn.getAutoCommit());
-						String message = "@" + test.getDbId() + "/" + test.getConnId() + ":" + sql.getScript();
-						bo.onMessage("[THREAD:" + index + "]" + message);
-
-						dao.execute(conn, sql, caseResult.isPrintQueryPlan());
-						result.append("===================================================");
-						result.append(System.getProperty("line.separator"));
-						result.append(sql.getResult());
-					}
-
-					cubridConnection.free();
+					runCase(caseFile);
 				}
-				long totalTime = System.currentTimeMillis() - startTime;
-				caseResult.setTotalTime(totalTime);
+			}
+		}
 
+		private void runCase(String caseFile) {
+			CaseResult caseResult = test.getCaseResultFromMap(caseFile);
+			boolean isSucc;
+			try {
+				if (caseResult == null || !caseResult.isShouldRun()) {
+					processMonitor.increaseCompleteFile();
+					processMonitor.increaseFailedFile();
+					isSucc = false;
+				} else {
+					executeSqlFile(test, caseResult, index, connIDList);
+					isSucc = finishCase(test, caseFile, caseResult);
+				}
 			} catch (Exception e) {
-
-				result.append(e.getMessage() + System.getProperty("line.separator"));
-
 				e.printStackTrace();
-			} finally {
-				caseResult.setResult(result.toString());
-				caseResult.setSiteRunTimes(test.getSiteRunTimes());
-
+				LogUtil.log(logId, "[THREAD:" + index + "]" + LogUtil.getExceptionMessage(e));
+				isSucc = false;
 			}
-			for (Connection conn : ConnList) {
-				try {
-					conn.commit();
-				} catch (SQLException e) {
-					e.printStackTrace();
+
+			int currentCount = caseQueue.complete();
+			int totalCaseCount = caseQueue.size();
+			synchronized (ConsoleBO.this) {
+				printMessage("Testing " + caseFile + " (" + currentCount + "/" + totalCaseCount + " " + getCompleteRatio(currentCount, totalCaseCount) + ")" + (isSucc ? " [OK]" : " [NOK]"), true, true);
+				if (caseResult != null && caseResult.isShouldRun() && ErrorInterruptUtil.isCaseRunError(ConsoleBO.this, caseFile)) {
+					onMessage("[ERROR]: Run case interrupt error!");
+					caseQueue.interrupt();
 				}
 			}
 		}
@@ -1744,11 +1861,6 @@ public class ConsoleBO extends Executor {
 		public int getIndex() {
 			return index;
 		}
-
-		public void setIndex(int index) {
-			this.index = index;
-		}
-
 	}
 
 	public Test getTest() {
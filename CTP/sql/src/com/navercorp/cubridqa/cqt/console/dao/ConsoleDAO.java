@@ -60,6 +60,7 @@ import com.navercorp.cubridqa.cqt.console.util.CubridConnection;
 import com.navercorp.cubridqa.cqt.console.util.EnvGetter;
 import com.navercorp.cubridqa.cqt.console.util.MyDataSource;
 import com.navercorp.cubridqa.cqt.console.util.MyDriverManager;
+import com.navercorp.cubridqa.cqt.console.util.PropertiesUtil;
 import com.navercorp.cubridqa.cqt.console.util.StringUtil;
 import com.navercorp.cubridqa.cqt.console.util.SystemUtil;
 import com.navercorp.cubridqa.cqt.console.util.TestUtil;
@@ -104,6 +105,12 @@ public class ConsoleDAO extends Executor {
 
 	private String os = SystemUtil.getOS();
 
+	/**
+	 * the max characters of one result set echoed to console, 0 means no
+	 * echo. It is configured by result_echo_max_size in local.properties.
+	 */
+	private int echoMaxSize = 4096;
+
 	/**
 	 * 
 	 * @ClassName: ConnThread
@@ -184,6 +191,14 @@ public class ConsoleDAO extends Executor {
 			this.objects = new Object[] {};
 			classLoader.loadClass(driver);
 			dbPath = EnvGetter.getenv("CTP_HOME") + File.separator + TestUtil.CONFIG_NAME + File.separator + "Function_Db";
+			String echoSize = PropertiesUtil.getValue("result_echo_max_size");
+			if (echoSize != null && echoSize.trim().length() > 0) {
+				try {
+					echoMaxSize = Integer.parseInt(echoSize.trim());
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid value of result_echo_max_size in local.properties: " + echoSize);
+				}
+			}
 			ConnThread connThread = new ConnThread(this);
 			Thread thread = new Thread(connThread);
 			thread.start();
@@ -516,7 +531,7 @@ public class ConsoleDAO extends Executor {
 						sb.append(o + System.getProperty("line.separator"));
 					}
 				}
-				sql.setResult(sql.getResult() + sb.toString());
+				sql.appendResult(sb);
 				sb = null;
 			}
 		} catch (SQLException e) {
@@ -620,7 +635,7 @@ public class ConsoleDAO extends Executor {
 				String queryPlan = (String) method.invoke(ps, new Object[] {});
 				queryPlan = queryPlan + System.getProperty("line.separator");
 				queryPlan = StringUtil.replaceQureyPlan(queryPlan);
-				sql.setResult(sql.getResult() + queryPlan);
+				sql.appendResult(queryPlan);
 				method = null;
 				queryPlan = null;
 			}
@@ -664,7 +679,7 @@ public class ConsoleDAO extends Executor {
 				String queryPlan = (String) method.invoke(st, new Object[] { sql.getScript() });
 				queryPlan = queryPlan + System.getProperty("line.separator");
 				queryPlan = StringUtil.replaceQureyPlan(queryPlan);
-				sql.setResult(sql.getResult() + queryPlan);
+				sql.appendResult(queryPlan);
 				method = null;
 				queryPlan = null;
 			}
@@ -748,7 +763,7 @@ public class ConsoleDAO extends Executor {
 				if (updateCount == -1) {
 					break;
 				} else {
-					sql.setResult(sql.getResult() + updateCount + System.getProperty("line.separator"));
+					sql.appendResult(updateCount + System.getProperty("line.separator"));
 				}
 			}
 
@@ -788,9 +803,15 @@ public class ConsoleDAO extends Executor {
 				}
 				ret.append(System.getProperty("line.separator"));
 			}
-			this.onMessage("+++++++++++++++++++record begin++++++++++++++++++++");
-			this.onMessage(ret.toString());
-			this.onMessage("+++++++++++++++++++record end++++++++++++++++++++");
+			if (echoMaxSize > 0) {
+				this.onMessage("+++++++++++++++++++record begin++++++++++++++++++++");
+				if (ret.length() > echoMaxSize) {
+					this.onMessage(ret.substring(0, echoMaxSize) + "...(" + (ret.length() - echoMaxSize) + " more characters)");
+				} else {
+					this.onMessage(ret.toString());
+				}
+				this.onMessage("+++++++++++++++++++record end++++++++++++++++++++");
+			}
 		} catch (Exception e) {
 			this.onMessage(e.getMessage());
 		} finally {
@@ -806,10 +827,11 @@ public class ConsoleDAO extends Executor {
 		if (script.startsWith("SHOW TRACE")) {
 			String res = ret.toString();
 			res = res.replaceAll("[0-9]+", "?");
-			sql.setResult(sql.getResult() + res + System.getProperty("line.separator"));
+			sql.appendResult(res);
 		} else {
-			sql.setResult(sql.getResult() + ret.toString() + System.getProperty("line.separator"));
+			sql.appendResult(ret);
 		}
+		sql.appendResult(System.getProperty("line.separator"));
 	}
 
 	/**
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.cqt.console.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * compare the answer of a case with its result without loading them into
+ * memory. Line breaks are ignored like before, and the comparison stops at
+ * the first different character.
+ */
+public class AnswerComparator {
+
+	public static final String STATEMENT_SEPARATOR = "===================================================";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private long mismatchOffset = -1;
+
+	private int mismatchLine = -1;
+
+	private int mismatchStatement = -1;
+
+	/**
+	 * compare the answer file with the result file.
+	 * 
+	 * @param answerFile
+	 * @param resultFile
+	 * @return true if they are the same.
+	 */
+	public boolean compareFile(String answerFile, String resultFile) {
+		Reader answer = null;
+		Reader result = null;
+		try {
+			answer = openFile(answerFile);
+			result = openFile(resultFile);
+			return compare(answer, result);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			close(answer);
+			close(result);
+		}
+	}
+
+	/**
+	 * compare the answer file with the result in memory.
+	 * 
+	 * @param answerFile
+	 * @param result
+	 * @return true if they are the same.
+	 */
+	public boolean compare(String answerFile, String result) {
+		Reader answer = null;
+		try {
+			answer = openFile(answerFile);
+			return compare(answer, new StringReader(result == null ? "" : result));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			close(answer);
+		}
+	}
+
+	/**
+	 * compare the answer with the result ignoring all line breaks.
+	 * 
+	 * @param answer
+	 * @param result
+	 * @return true if they are the same.
+	 * @throws IOException
+	 */
+	public boolean compare(Reader answer, Reader result) throws IOException {
+		CharSource answerSource = new CharSource(answer);
+		CharSource resultSource = new CharSource(result);
+		long offset = 0;
+		int line = 1;
+		int statement = 0;
+		int lineLength = 0;
+		boolean separatorLine = true;
+
+		mismatchOffset = -1;
+		mismatchLine = -1;
+		mismatchStatement = -1;
+
+		while (true) {
+			int a = answerSource.read();
+			while (a == '\r' || a == '\n') {
+				if (a == '\n') {
+					if (separatorLine && lineLength == STATEMENT_SEPARATOR.length()) {
+						statement++;
+					}
+					line++;
+					lineLength = 0;
+					separatorLine = true;
+				}
+				offset++;
+				a = answerSource.read();
+			}
+
+			int r = resultSource.read();
+			while (r == '\r' || r == '\n') {
+				r = resultSource.read();
+			}
+
+			if (a != r) {
+				mismatchOffset = offset;
+				mismatchLine = line;
+				mismatchStatement = statement;
+				return false;
+			}
+			if (a == -1) {
+				return true;
+			}
+
+			offset++;
+			lineLength++;
+			separatorLine = separatorLine && a == '=';
+		}
+	}
+
+	/**
+	 * get the offset of the first different character in the answer.
+	 * 
+	 * @return -1 if no difference.
+	 */
+	public long getMismatchOffset() {
+		return mismatchOffset;
+	}
+
+	/**
+	 * get the line number of the first difference in the answer.
+	 * 
+	 * @return -1 if no difference.
+	 */
+	public int getMismatchLine() {
+		return mismatchLine;
+	}
+
+	/**
+	 * get the index of the statement (start from 1) whose result is
+	 * different.
+	 * 
+	 * @return -1 if no difference, 0 if the difference is before the first
+	 *         statement.
+	 */
+	public int getMismatchStatement() {
+		return mismatchStatement;
+	}
+
+	/**
+	 * get the description of the first difference.
+	 * 
+	 * @return null if no difference.
+	 */
+	public String getMismatchInfo() {
+		if (mismatchOffset < 0) {
+			return null;
+		}
+		return "statement " + mismatchStatement + ", answer line " + mismatchLine + ", offset " + mismatchOffset;
+	}
+
+	private static Reader openFile(String file) throws IOException {
+		if (file == null || !new File(file).exists()) {
+			throw new IOException("file not found: " + file);
+		}
+		return new InputStreamReader(new FileInputStream(file), TestUtil.DEFAULT_CODESET);
+	}
+
+	private static void close(Reader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private static class CharSource {
+		private Reader reader;
+		private char[] buffer = new char[BUFFER_SIZE];
+		private int position = 0;
+		private int limit = 0;
+
+		CharSource(Reader reader) {
+			this.reader = reader;
+		}
+
+		int read() throws IOException {
+			if (position >= limit) {
+				limit = reader.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return -1;
+				}
+			}
+			return buffer[position++];
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.cqt.console.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * digest of an answer or a result with the line breaks removed, so that two
+ * digests are equal when AnswerComparator finds them the same.
+ */
+public class AnswerDigest {
+
+	private static final String ALGORITHM = "MD5";
+
+	private MessageDigest digest;
+
+	private byte[] buffer = new byte[8 * 1024];
+
+	private int position = 0;
+
+	public AnswerDigest() {
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void update(CharSequence data) {
+		if (data == null) {
+			return;
+		}
+		for (int i = 0; i < data.length(); i++) {
+			update(data.charAt(i));
+		}
+	}
+
+	public void update(char[] data, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			update(data[i]);
+		}
+	}
+
+	private void update(char c) {
+		if (c == '\r' || c == '\n') {
+			return;
+		}
+		if (position + 2 > buffer.length) {
+			digest.update(buffer, 0, position);
+			position = 0;
+		}
+		buffer[position++] = (byte) (c >> 8);
+		buffer[position++] = (byte) c;
+	}
+
+	/**
+	 * get the digest as hex string. The digest can not be updated after this.
+	 * 
+	 * @return
+	 */
+	public String getDigest() {
+		digest.update(buffer, 0, position);
+		position = 0;
+		byte[] bytes = digest.digest();
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(bytes[i] & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * get the digest of a file.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static String digestFile(String file) throws IOException {
+		AnswerDigest digest = new AnswerDigest();
+		Reader reader = new InputStreamReader(new FileInputStream(file), TestUtil.DEFAULT_CODESET);
+		try {
+			char[] chars = new char[16 * 1024];
+			int len;
+			while ((len = reader.read(chars)) != -1) {
+				digest.update(chars, 0, len);
+			}
+		} finally {
+			reader.close();
+		}
+		return digest.getDigest();
+	}
+}
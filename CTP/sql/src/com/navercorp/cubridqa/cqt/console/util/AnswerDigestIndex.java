@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.cqt.console.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * persistent index of answer digests. An entry is keyed by the path of the
+ * answer file and is out of date as soon as the modified time or the length
+ * of the file changes.
+ */
+public class AnswerDigestIndex {
+
+	public static final String INDEX_DIR = "answer_digest";
+
+	private String indexFile;
+
+	private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private volatile boolean changed = false;
+
+	public AnswerDigestIndex(String indexFile) {
+		this.indexFile = indexFile;
+	}
+
+	/**
+	 * get the index file of a scenario. The index is kept under the result
+	 * directory of CTP instead of the scenario checkout, one file per
+	 * scenario path.
+	 * 
+	 * @param scenarioRoot
+	 * @return
+	 */
+	public static String getIndexFileOfScenario(String scenarioRoot) {
+		String path;
+		try {
+			path = new File(scenarioRoot).getCanonicalPath();
+		} catch (IOException e) {
+			path = new File(scenarioRoot).getAbsolutePath();
+		}
+		AnswerDigest key = new AnswerDigest();
+		key.update(path);
+		return EnvGetter.getenv("CTP_HOME") + TestUtil.RESULT + INDEX_DIR + File.separator + key.getDigest() + ".idx";
+	}
+
+	/**
+	 * load the index file. A broken index is ignored and will be rebuilt.
+	 */
+	public void load() {
+		File file = new File(indexFile);
+		if (!file.exists()) {
+			return;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), TestUtil.DEFAULT_CODESET));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] items = line.split("\t");
+				if (items.length != 4) {
+					continue;
+				}
+				try {
+					entries.put(items[0], new Entry(Long.parseLong(items[1]), Long.parseLong(items[2]), items[3]));
+				} catch (NumberFormatException e) {
+				}
+			}
+		} catch (IOException e) {
+			entries.clear();
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * save the index file if anything was changed.
+	 * 
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		if (!changed) {
+			return;
+		}
+		File file = new File(indexFile);
+		if (file.getParentFile() != null && !file.getParentFile().exists()) {
+			file.getParentFile().mkdirs();
+		}
+		File tmpFile = new File(indexFile + ".tmp");
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), TestUtil.DEFAULT_CODESET));
+		try {
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, Entry> e = it.next();
+				if (!new File(e.getKey()).exists()) {
+					continue;
+				}
+				writer.write(e.getKey() + "\t" + e.getValue().modified + "\t" + e.getValue().length + "\t" + e.getValue().digest);
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("fail to replace " + indexFile);
+		}
+		if (!tmpFile.renameTo(file)) {
+			throw new IOException("fail to rename " + tmpFile);
+		}
+		changed = false;
+	}
+
+	/**
+	 * get the digest of the answer file, compute it again if the entry is out
+	 * of date.
+	 * 
+	 * @param answerFile
+	 * @return null if the answer file does not exist.
+	 */
+	public String getDigest(String answerFile) {
+		File file = new File(answerFile);
+		if (!file.exists()) {
+			return null;
+		}
+		long modified = file.lastModified();
+		long length = file.length();
+		Entry entry = entries.get(answerFile);
+		if (entry != null && entry.modified == modified && entry.length == length) {
+			return entry.digest;
+		}
+		try {
+			String digest = AnswerDigest.digestFile(answerFile);
+			entries.put(answerFile, new Entry(modified, length, digest));
+			changed = true;
+			return digest;
+		} catch (IOException e) {
+			entries.remove(answerFile);
+			return null;
+		}
+	}
+
+	/**
+	 * bring the entries of the answer files up to date with several threads.
+	 * 
+	 * @param answerFileList
+	 * @param threadCount
+	 */
+	public void build(List<String> answerFileList, int threadCount) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		for (final String answerFile : answerFileList) {
+			pool.execute(new Runnable() {
+				public void run() {
+					getDigest(answerFile);
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public String getIndexFile() {
+		return indexFile;
+	}
+
+	private static class Entry {
+		private long modified;
+		private long length;
+		private String digest;
+
+		Entry(long modified, long length, String digest) {
+			this.modified = modified;
+			this.length = length;
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2016, Search Solution Corporation. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ * 
+ *   * Redistributions in binary form must reproduce the above copyright 
+ *     notice, this list of conditions and the following disclaimer in 
+ *     the documentation and/or other materials provided with the distribution.
+ * 
+ *   * Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products 
+ *     derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE 
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+package com.navercorp.cubridqa.cqt.console.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+/**
+ * write the result of one case file to its result file while the case is
+ * running, so that the result of a case is never kept in memory as a whole.
+ */
+public class CaseResultWriter {
+
+	private String file;
+
+	private BufferedWriter writer;
+
+	private long length = 0;
+
+	private AnswerDigest digest = new AnswerDigest();
+
+	private boolean hasError = false;
+
+	public CaseResultWriter(String file, String charset) throws IOException {
+		this.file = file;
+		File f = new File(file);
+		if (f.getParentFile() != null && !f.getParentFile().exists()) {
+			f.getParentFile().mkdirs();
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f, false), charset), 64 * 1024);
+	}
+
+	public void write(CharSequence data) {
+		if (data == null) {
+			return;
+		}
+		try {
+			writer.append(data);
+			length += data.length();
+			digest.update(data);
+		} catch (IOException e) {
+			hasError = true;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * get the count of characters written.
+	 * 
+	 * @return
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * get the digest of all the data written, it can be compared with the
+	 * answer digest.
+	 * 
+	 * @return null if some data failed to be written.
+	 */
+	public String getDigest() {
+		return hasError ? null : digest.getDigest();
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void close() {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
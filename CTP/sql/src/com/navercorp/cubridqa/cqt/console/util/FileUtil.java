@@ -30,8 +30,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
@@ -212,6 +215,49 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * copy the file and convert it from one charset to another.
+	 * 
+	 * @param source
+	 * @param sourceCharset
+	 * @param target
+	 * @param targetCharset
+	 */
+	public static void copyFileWithCharset(String source, String sourceCharset, String target, String targetCharset) {
+		if (targetCharset == null || sourceCharset.equalsIgnoreCase(targetCharset)) {
+			writeSQLFileIntoResultFolder(source, target);
+			return;
+		}
+		if (!new File(source).exists()) {
+			return;
+		}
+
+		Reader reader = null;
+		Writer writer = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(source), sourceCharset);
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), targetCharset));
+			char[] buf = new char[16 * 1024];
+			int len;
+			while ((len = reader.read(buf)) != -1) {
+				writer.write(buf, 0, len);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				if (reader != null) {
+					reader.close();
+				}
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	public static BufferedWriter openOneFileHandle(String file) {
 		if (file == null) {
 			return null;
@@ -62,7 +62,7 @@ public class MyDriverManager {
 	 * @param password
 	 * @return
 	 */
-	public static Connection giveConnection(String drivers, String dbUrl, String user, String password) {
+	public static synchronized Connection giveConnection(String drivers, String dbUrl, String user, String password) {
 		try {
 			driverClass = Class.forName(drivers, true, getURLClassLoader());
 			driver = null;
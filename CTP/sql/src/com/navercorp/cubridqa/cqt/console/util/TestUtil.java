@@ -315,6 +315,18 @@ public class TestUtil {
 		return StringUtil.replaceSlashBasedSystem(answerDir + File.separator + caseName + ".answer");
 	}
 
+	/**
+	 * get the database configuration id of the shard used by one worker,
+	 * e.g. basic_qa_w0 for basic_qa (see sql/bin/run.sh).
+	 * 
+	 * @param dbId
+	 * @param shard
+	 * @return
+	 */
+	public static String getShardDbId(String dbId, int shard) {
+		return dbId + "_w" + shard;
+	}
+
 	/**
 	 * get the post-fix through case file name.
 	 * 
@@ -683,8 +695,11 @@ public class TestUtil {
 	public static void saveResult(CaseResult caseResult, String charset) {
 		if (!caseResult.isSuccessFul()) {
 			String resultFile = caseResult.getResultDir() + "/" + caseResult.getCaseName() + ".result";
-			if (caseResult.getType() == CaseResult.TYPE_SQL) {
+			if (caseResult.getType() == CaseResult.TYPE_SQL && caseResult.getResultFile() == null) {
 				FileUtil.writeToFile(resultFile, caseResult.getResult(), charset);
+			} else if (caseResult.getType() == CaseResult.TYPE_SQL) {
+				// the running result is kept in DEFAULT_CODESET
+				FileUtil.copyFileWithCharset(caseResult.getResultFile(), DEFAULT_CODESET, resultFile, charset);
 			} else {
 				String tempResultFile = caseResult.getCaseDir() + "/" + caseResult.getCaseName() + ".result";
 				FileUtil.copyFile(tempResultFile, resultFile);